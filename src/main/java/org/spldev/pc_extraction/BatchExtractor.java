@@ -0,0 +1,327 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.pc_extraction.convert.*;
+import org.spldev.pc_extraction.convert.Grouper.*;
+import org.spldev.pc_extraction.extraction.cpp.*;
+import org.spldev.pc_extraction.util.*;
+import org.spldev.util.logging.*;
+
+public class BatchExtractor {
+
+	public enum Stage {
+		PENDING, LOAD, EXTRACT, CONVERT, GROUP, DONE, FAILED
+	}
+
+	public static class Job {
+		private final String name;
+		private final Path systemPath;
+		private final String modelName;
+		private final Path kbuildOutputPath;
+		private final CNF model;
+
+		public Job(String name, Path systemPath, String modelName, Path kbuildOutputPath) {
+			this.name = name;
+			this.systemPath = systemPath;
+			this.modelName = modelName;
+			this.kbuildOutputPath = kbuildOutputPath;
+			model = null;
+		}
+
+		public Job(String name, Path systemPath, CNF model) {
+			this.name = name;
+			this.systemPath = systemPath;
+			this.model = model;
+			modelName = null;
+			kbuildOutputPath = null;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Path getSystemPath() {
+			return systemPath;
+		}
+	}
+
+	public static class JobResult {
+		private final Job job;
+		private final long[] stageTimes = new long[Stage.values().length];
+
+		private volatile Stage stage = Stage.PENDING;
+		private CNF model;
+		private PresenceConditionList pcList;
+		private Expressions expressions;
+		private Exception failure;
+
+		private JobResult(Job job) {
+			this.job = job;
+		}
+
+		public Job getJob() {
+			return job;
+		}
+
+		public Stage getStage() {
+			return stage;
+		}
+
+		public long getStageTime(Stage stage) {
+			return stageTimes[stage.ordinal()];
+		}
+
+		public long getTotalTime() {
+			return LongStream.of(stageTimes).sum();
+		}
+
+		public Expressions getExpressions() {
+			return expressions;
+		}
+
+		public Exception getFailure() {
+			return failure;
+		}
+	}
+
+	private static final Stage[] STAGES = { Stage.LOAD, Stage.EXTRACT, Stage.CONVERT, Stage.GROUP };
+
+	private final ResidentCache<String, CNF> models;
+	private final ConcurrentHashMap<String, Map<String, Formula>> formulaCaches = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Object> modelLocks = new ConcurrentHashMap<>();
+	private final IdentityHashMap<CNF, Integer> modelIds = new IdentityHashMap<>();
+
+	private int threadCount = Runtime.getRuntime().availableProcessors();
+	private Grouping groupingValue = Grouping.PC_ALL_FM;
+	private CPPExtractor.Engine extractionEngine = CPPExtractor.Engine.FEATURECOPP;
+	private boolean saveResults = true;
+	private Compression compression = Compression.NONE;
+
+	private List<JobResult> results = Collections.emptyList();
+	private ExecutorService executor;
+	private ExecutorService extractionExecutor;
+	private final Set<Path> extractedSystems = new HashSet<>();
+
+	public BatchExtractor() {
+		this(new ResidentCache<>(Long.MAX_VALUE, cnf -> 0));
+	}
+
+	public BatchExtractor(ResidentCache<String, CNF> models) {
+		this.models = models;
+	}
+
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	public void setGroupingValue(Grouping groupingValue) {
+		this.groupingValue = groupingValue;
+	}
+
+	public void setExtractionEngine(CPPExtractor.Engine extractionEngine) {
+		this.extractionEngine = extractionEngine;
+	}
+
+	public void setSaveIntermediateResults(boolean saveIntermediateResults) {
+		saveResults = saveIntermediateResults;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	public List<JobResult> getProgress() {
+		return results;
+	}
+
+	public List<JobResult> run(Path outputPath, List<Job> jobs) throws InterruptedException {
+		results = jobs.stream().map(JobResult::new).collect(Collectors.toList());
+		executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+		extractionExecutor = Executors.newSingleThreadExecutor();
+		extractedSystems.clear();
+		final CountDownLatch latch = new CountDownLatch(results.size());
+		try {
+			for (final JobResult result : results) {
+				execute(latch, outputPath, result, 0);
+			}
+			latch.await();
+		} finally {
+			executor.shutdownNow();
+			extractionExecutor.shutdownNow();
+		}
+		Logger.logInfo(createReport(results));
+		return results;
+	}
+
+	private void execute(CountDownLatch latch, Path outputPath, JobResult result, int stageIndex) {
+		final ExecutorService stageExecutor = STAGES[stageIndex] == Stage.EXTRACT ? extractionExecutor : executor;
+		stageExecutor.execute(() -> runStage(latch, outputPath, result, stageIndex));
+	}
+
+	private void runStage(CountDownLatch latch, Path outputPath, JobResult result, int stageIndex) {
+		final Stage stage = STAGES[stageIndex];
+		final Job job = result.job;
+		result.stage = stage;
+		final long start = System.nanoTime();
+		boolean scheduled = false;
+		try {
+			try {
+				final PCExtractor pcExtractor = createExtractor(job);
+				final String systemName = job.systemPath.getFileName().toString();
+				final Path systemOutputPath = outputPath.resolve(PCExtractor.getSystemDirectoryName(job.systemPath));
+				switch (stage) {
+				case LOAD:
+					result.model = getModel(job);
+					break;
+				case EXTRACT:
+					final Path systemPath = job.systemPath.toAbsolutePath().normalize();
+					if (!extractedSystems.contains(systemPath)) {
+						if (!pcExtractor.extractPresenceConditions(systemOutputPath, job.systemPath)) {
+							throw new IOException("Could not extract presence conditions of " + systemName);
+						}
+						extractedSystems.add(systemPath);
+					}
+					break;
+				case CONVERT:
+					result.pcList = pcExtractor.convertPresenceConditions(systemOutputPath, systemName,
+						result.model);
+					if (result.pcList == null) {
+						throw new IOException("Could not convert presence conditions of " + systemName);
+					}
+					break;
+				case GROUP:
+					result.expressions = pcExtractor.groupPresenceConditions(systemOutputPath, systemName,
+						result.pcList);
+					result.pcList = null;
+					break;
+				default:
+					throw new IllegalStateException(stage.toString());
+				}
+				result.stageTimes[stage.ordinal()] = System.nanoTime() - start;
+			} catch (final Exception e) {
+				result.stageTimes[stage.ordinal()] = System.nanoTime() - start;
+				result.failure = e;
+				Logger.logError(job.name + ": " + stage + " failed");
+				Logger.logError(e);
+				return;
+			}
+			if ((stageIndex + 1) < STAGES.length) {
+				execute(latch, outputPath, result, stageIndex + 1);
+				scheduled = true;
+			} else {
+				result.stage = Stage.DONE;
+			}
+			Logger.logProgress(getProgressSummary());
+		} finally {
+			if (!scheduled) {
+				if (result.stage != Stage.DONE) {
+					result.pcList = null;
+					result.stage = Stage.FAILED;
+				}
+				latch.countDown();
+			}
+		}
+	}
+
+	private String getProgressSummary() {
+		final Map<Stage, Long> stageCounts = results.stream()
+			.collect(Collectors.groupingBy(JobResult::getStage, () -> new EnumMap<>(Stage.class),
+				Collectors.counting()));
+		return stageCounts.entrySet().stream() //
+			.map(entry -> entry.getKey() + ": " + entry.getValue()) //
+			.collect(Collectors.joining(", ", "(", ")"));
+	}
+
+	private PCExtractor createExtractor(Job job) {
+		final PCExtractor pcExtractor = new PCExtractor();
+		pcExtractor.setGroupingValue(groupingValue);
+		pcExtractor.setExtractionEngine(extractionEngine);
+		pcExtractor.setSaveIntermediateResults(saveResults);
+		pcExtractor.setCompression(compression);
+		if (job.modelName != null) {
+			pcExtractor.setModelName(PCExtractor.getModelDirectoryName(job.modelName, job.kbuildOutputPath));
+		} else if (job.model != null) {
+			pcExtractor.setModelName(job.name + "_" + getModelId(job.model));
+		}
+		final String modelKey = getModelKey(job);
+		pcExtractor.setFormulaCache(formulaCaches.computeIfAbsent(modelKey != null ? modelKey : "",
+			key -> Collections.synchronizedMap(new HashMap<>())));
+		return pcExtractor;
+	}
+
+	private CNF getModel(Job job) throws Exception {
+		if (job.modelName == null) {
+			return job.model;
+		}
+		final String modelKey = getModelKey(job);
+		synchronized (modelLocks.computeIfAbsent(modelKey, key -> new Object())) {
+			return models.get(modelKey, key -> new KconfigDimacsReader().load(job.modelName, job.kbuildOutputPath));
+		}
+	}
+
+	private String getModelKey(Job job) {
+		return job.modelName != null ? job.kbuildOutputPath.toAbsolutePath().normalize() + "|" + job.modelName
+			: job.model != null ? "cnf#" + getModelId(job.model) : null;
+	}
+
+	private int getModelId(CNF model) {
+		synchronized (modelIds) {
+			return modelIds.computeIfAbsent(model, key -> modelIds.size());
+		}
+	}
+
+	public static String createReport(List<JobResult> results) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("job\tstatus");
+		for (final Stage stage : STAGES) {
+			sb.append('\t').append(stage.toString().toLowerCase()).append("_ms");
+		}
+		sb.append("\ttotal_ms\tgroups\terror\n");
+		for (final JobResult result : results) {
+			sb.append(result.job.name).append('\t').append(result.stage);
+			for (final Stage stage : STAGES) {
+				sb.append('\t').append(result.getStageTime(stage) / 1_000_000);
+			}
+			sb.append('\t').append(result.getTotalTime() / 1_000_000);
+			sb.append('\t').append(result.expressions != null ? result.expressions.getExpressions().size() : 0);
+			sb.append('\t').append(result.failure != null ? String.valueOf(result.failure.getMessage()) : "");
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	public void writeReport(Path reportFile) throws IOException {
+		Files.write(reportFile, createReport(results).getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -25,11 +25,15 @@ package org.spldev.pc_extraction;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
 
 import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
 import org.spldev.pc_extraction.convert.*;
 import org.spldev.pc_extraction.convert.Grouper.*;
 import org.spldev.pc_extraction.extraction.cpp.*;
+import org.spldev.pc_extraction.util.*;
 import org.spldev.util.data.*;
 import org.spldev.util.io.*;
 import org.spldev.util.io.binary.*;
@@ -39,6 +43,21 @@ public class PCExtractor {
 
 	private boolean saveResults = true;
 	private Grouping groupingValue = Grouping.PC_ALL_FM;
+	private CPPExtractor.Engine extractionEngine = CPPExtractor.Engine.FEATURECOPP;
+	private boolean streamingConversion = false;
+	private int shardCount = 1;
+	private Map<String, Formula> formulaCache;
+	private boolean useBDD = false;
+	private Compression compression = Compression.NONE;
+	private int checkpointInterval = 1000;
+	private long fileTimeout = 0;
+	private long fileAllocationBudget = 0;
+	private int maxAbandonedThreads = 4;
+	private int contentCacheSize = 4096;
+	private String modelName;
+	private GroupWeight groupWeight = GroupWeight.EXPRESSIONS;
+	private long targetGroupSize = 0;
+	private int groupCount = Runtime.getRuntime().availableProcessors();
 
 	public void setSaveIntermediateResults(boolean saveIntermediateResults) {
 		saveResults = saveIntermediateResults;
@@ -48,6 +67,91 @@ public class PCExtractor {
 		this.groupingValue = groupingValue;
 	}
 
+	public void setGroupWeight(GroupWeight groupWeight) {
+		this.groupWeight = groupWeight;
+	}
+
+	public void setTargetGroupSize(long targetGroupSize) {
+		this.targetGroupSize = targetGroupSize;
+	}
+
+	public void setGroupCount(int groupCount) {
+		this.groupCount = groupCount;
+	}
+
+	public void setExtractionEngine(CPPExtractor.Engine extractionEngine) {
+		this.extractionEngine = extractionEngine;
+	}
+
+	public void setStreamingConversion(boolean streamingConversion) {
+		this.streamingConversion = streamingConversion;
+	}
+
+	public void setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public void setFormulaCache(Map<String, Formula> formulaCache) {
+		this.formulaCache = formulaCache;
+	}
+
+	public void setUseBDD(boolean useBDD) {
+		this.useBDD = useBDD;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public void setFileTimeout(long fileTimeout) {
+		this.fileTimeout = fileTimeout;
+	}
+
+	public void setFileAllocationBudget(long fileAllocationBudget) {
+		this.fileAllocationBudget = fileAllocationBudget;
+	}
+
+	public void setMaxAbandonedThreads(int maxAbandonedThreads) {
+		this.maxAbandonedThreads = maxAbandonedThreads;
+	}
+
+	public void setContentCacheSize(int contentCacheSize) {
+		this.contentCacheSize = contentCacheSize;
+	}
+
+	public String getModelName() {
+		return modelName;
+	}
+
+	public void setModelName(String modelName) {
+		this.modelName = modelName;
+	}
+
+	public static String getModelDirectoryName(String modelName, Path kbuildOutputPath) {
+		final String path = kbuildOutputPath.toAbsolutePath().normalize().toString();
+		return modelName + "_" + Integer.toHexString(path.hashCode());
+	}
+
+	public static String getSystemDirectoryName(Path systemPath) {
+		final String path = systemPath.toAbsolutePath().normalize().toString();
+		return systemPath.getFileName() + "_" + Integer.toHexString(path.hashCode());
+	}
+
+	public void deleteConversionFiles(Path outputPath, String systemName) throws IOException {
+		final Path systemDir = outputPath.resolve("pclist").resolve(systemName);
+		if (Files.exists(systemDir)) {
+			try (Stream<Path> files = Files.walk(systemDir)) {
+				files.sorted(Comparator.reverseOrder())
+					.map(Path::toFile)
+					.forEach(File::delete);
+			}
+		}
+	}
+
 	public void deleteExpressionFiles(Path outputPath, String systemName) throws Exception {
 		final Path pcListDir = outputPath.resolve("pclist").resolve(systemName);
 		final Path extractDir = outputPath.resolve("extract").resolve(systemName);
@@ -66,42 +170,216 @@ public class PCExtractor {
 	}
 
 	public Expressions extract(Path outputPath, Path systemPath, CNF fmFormula) throws Exception {
-		final Path pcListDir = outputPath.resolve("pclist").resolve(systemPath.getFileName());
+		final Path pcListDir = getPCListDir(outputPath, systemPath.getFileName().toString());
 		final Path extractDir = outputPath.resolve("extract").resolve(systemPath.getFileName());
 		Files.createDirectories(pcListDir);
 		Files.createDirectories(extractDir);
 
 		extract(systemPath, extractDir.getParent());
+		if (streamingConversion) {
+			final Path pcStreamFile = convertStreaming(fmFormula, extractDir, pcListDir);
+			if (pcStreamFile == null) {
+				return null;
+			}
+			try {
+				return group(pcStreamFile, pcListDir);
+			} finally {
+				if (!saveResults) {
+					Files.deleteIfExists(pcStreamFile);
+				}
+			}
+		}
 		final PresenceConditionList pcList = convert(fmFormula, extractDir, pcListDir);
 		final Expressions expressions = group(pcList, pcListDir);
 		return expressions;
 	}
 
+	public Map<String, Expressions> extract(Path outputPath, Path systemPath, Map<String, CNF> fmFormulas)
+		throws Exception {
+		final Path pcListDir = outputPath.resolve("pclist").resolve(systemPath.getFileName());
+		final Path extractDir = outputPath.resolve("extract").resolve(systemPath.getFileName());
+		Files.createDirectories(pcListDir);
+		Files.createDirectories(extractDir);
+
+		extract(systemPath, extractDir.getParent());
+		final UnboundPresenceConditionList unboundList = convertUnbound(extractDir, pcListDir);
+		if (unboundList == null) {
+			return null;
+		}
+		final List<String> modelNames = new ArrayList<>(fmFormulas.keySet());
+		final List<Expressions> groupedExpressions;
+		try {
+			groupedExpressions = modelNames.parallelStream().map(modelName -> {
+				try {
+					final Path modelDir = pcListDir.resolve(modelName);
+					Files.createDirectories(modelDir);
+					final PresenceConditionList pcList = bind(unboundList, fmFormulas.get(modelName), modelDir);
+					return group(pcList, modelDir);
+				} catch (final Exception e) {
+					throw new CompletionException(e);
+				}
+			}).collect(Collectors.toList());
+		} catch (final CompletionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+		final Map<String, Expressions> expressions = new LinkedHashMap<>();
+		for (int i = 0; i < modelNames.size(); i++) {
+			expressions.put(modelNames.get(i), groupedExpressions.get(i));
+		}
+		return expressions;
+	}
+
+	public boolean extractPresenceConditions(Path outputPath, Path systemPath) throws IOException {
+		final Path extractDir = outputPath.resolve("extract").resolve(systemPath.getFileName());
+		Files.createDirectories(extractDir);
+		return extract(systemPath, extractDir.getParent());
+	}
+
+	public PresenceConditionList convertPresenceConditions(Path outputPath, String systemName, CNF fmFormula)
+		throws IOException {
+		final Path pcListDir = getPCListDir(outputPath, systemName);
+		final Path extractDir = outputPath.resolve("extract").resolve(systemName);
+		Files.createDirectories(pcListDir);
+		return convert(fmFormula, extractDir, pcListDir);
+	}
+
+	public Expressions groupPresenceConditions(Path outputPath, String systemName, PresenceConditionList pcList)
+		throws Exception {
+		final Path pcListDir = getPCListDir(outputPath, systemName);
+		Files.createDirectories(pcListDir);
+		return group(pcList, pcListDir);
+	}
+
+	public Expressions updatePresenceConditions(Path outputPath, String systemName, CNF fmFormula,
+		List<Path> changedPCFiles, List<Path> removedFiles) throws Exception {
+		final Path pcListDir = getPCListDir(outputPath, systemName);
+		final Path extractDir = outputPath.resolve("extract").resolve(systemName);
+		for (final Path removedFile : removedFiles) {
+			final Path pcFile = extractDir.getParent().resolve(removedFile);
+			Files.deleteIfExists(pcFile.resolveSibling(pcFile.getFileName() + ".pc"));
+		}
+		final Result<PresenceConditionList> loadedPCList = loadPresenceConditionList(pcListDir);
+		if (!loadedPCList.isPresent()) {
+			Logger.logProblems(loadedPCList.getProblems());
+			return null;
+		}
+		final PresenceConditionList pcList = loadedPCList.get();
+		final Converter converter = createConverter();
+		invalidateOtherConversions(outputPath, systemName, pcListDir);
+		if (fmFormula == null) {
+			final Set<String> unknownVariables = converter.getUnknownVariables(pcList.getFormula(), changedPCFiles);
+			if (!unknownVariables.isEmpty()) {
+				Logger.logInfo("Delta adds " + unknownVariables.size() + " new variables, converting " + systemName
+					+ " again");
+				return reconvert(null, extractDir, pcListDir);
+			}
+		} else if (!isSameFormula(fmFormula, pcList.getFormula())) {
+			Logger.logInfo("Feature model changed, converting " + systemName + " again");
+			return reconvert(fmFormula, extractDir, pcListDir);
+		}
+		final PresenceConditionDelta delta = converter.convertFiles(pcList.getFormula(), changedPCFiles);
+		removedFiles.forEach(delta::removeFile);
+		final LinkedHashSet<String> pcNames = new LinkedHashSet<>();
+		if (pcList.getPCNames() != null) {
+			pcNames.addAll(pcList.getPCNames());
+		}
+		pcNames.addAll(converter.getPCNames());
+		pcList.setPCNames(new ArrayList<>(pcNames));
+		final Expressions expressions = applyDelta(pcListDir, pcList, delta);
+		updateFeatureIndex(pcListDir, extractDir, pcList.getFormula(), converter.getFeatureIndex(), removedFiles);
+		return expressions;
+	}
+
+	private static boolean isSameFormula(CNF formula1, CNF formula2) {
+		return formula1.getVariableMap().getNames().equals(formula2.getVariableMap().getNames())
+			&& formula1.getClauses().equals(formula2.getClauses());
+	}
+
+	private Expressions reconvert(CNF fmFormula, Path extractDir, Path pcListDir) throws Exception {
+		try (Stream<Path> files = Files.list(pcListDir)) {
+			for (final Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+		final PresenceConditionList pcList = convert(fmFormula, extractDir, pcListDir);
+		return pcList != null ? group(pcList, pcListDir) : null;
+	}
+
+	public Expressions applyDelta(Path outputPath, String systemName, PresenceConditionDelta delta)
+		throws Exception {
+		final Path pcListDir = getPCListDir(outputPath, systemName);
+		final Result<PresenceConditionList> loadedPCList = loadPresenceConditionList(pcListDir);
+		if (!loadedPCList.isPresent()) {
+			Logger.logProblems(loadedPCList.getProblems());
+			return null;
+		}
+		invalidateOtherConversions(outputPath, systemName, pcListDir);
+		final Expressions expressions = applyDelta(pcListDir, loadedPCList.get(), delta);
+		updateFeatureIndex(pcListDir, outputPath.resolve("extract").resolve(systemName),
+			loadedPCList.get().getFormula(), null, Collections.emptyList());
+		return expressions;
+	}
+
 	public Result<Expressions> loadExpressions(Path outputPath, String systemName) {
 		final SerializableObjectFormat<Expressions> format = new SerializableObjectFormat<>();
-		return FileHandler.load(outputPath.resolve("pclist").resolve(systemName)
-			.resolve("grouped_" + groupingValue + "." + format.getFileExtension()), format);
+		return load(getPCListDir(outputPath, systemName)
+			.resolve(getGroupedFileName(format)), format);
+	}
+
+	public Result<FeatureIndex> loadFeatureIndex(Path outputPath, String systemName) {
+		final SerializableObjectFormat<FeatureIndex> format = new SerializableObjectFormat<>();
+		return load(getPCListDir(outputPath, systemName)
+			.resolve("feature_index." + format.getFileExtension()), format);
+	}
+
+	private Path getPCListDir(Path outputPath, String systemName) {
+		final Path pcListDir = outputPath.resolve("pclist").resolve(systemName);
+		return modelName != null ? pcListDir.resolve(modelName) : pcListDir;
+	}
+
+	private String getGroupedFileName(SerializableObjectFormat<Expressions> format) {
+		final boolean balanced = (groupingValue == Grouping.PC_BALANCED_FM) || (groupingValue == Grouping.PC_BALANCED);
+		final String target = targetGroupSize > 0 ? Long.toString(targetGroupSize) : "n" + Math.max(1, groupCount);
+		return "grouped_" + groupingValue + (balanced ? "_" + target + "_" + groupWeight : "")
+			+ (useBDD ? "_bdd" : "") + "." + format.getFileExtension();
 	}
 
-	private void extract(Path systemPath, Path extractDir) {
-		new CPPExtractor().extract(systemPath, extractDir);
+	private boolean extract(Path systemPath, Path extractDir) {
+		final CPPExtractor cppExtractor = new CPPExtractor();
+		cppExtractor.setEngine(extractionEngine);
+		cppExtractor.setCompression(compression);
+		cppExtractor.setCheckpointInterval(checkpointInterval);
+		cppExtractor.setFileTimeout(fileTimeout);
+		cppExtractor.setFileAllocationBudget(fileAllocationBudget);
+		cppExtractor.setMaxAbandonedThreads(maxAbandonedThreads);
+		cppExtractor.setContentCacheSize(contentCacheSize);
+		if (shardCount > 1) {
+			final ShardedCPPExtractor shardedExtractor = new ShardedCPPExtractor(cppExtractor);
+			shardedExtractor.setShardCount(shardCount);
+			return shardedExtractor.extract(systemPath, extractDir);
+		} else {
+			return cppExtractor.extract(systemPath, extractDir);
+		}
 	}
 
 	private PresenceConditionList convert(CNF fmFormula, Path extractDir, Path pcListDir) throws IOException {
 		final SerializableObjectFormat<PresenceConditionList> format = new SerializableObjectFormat<>();
 		final Path pcListFile = pcListDir.resolve("pclist_fm." + format.getFileExtension());
 		if (Files.exists(pcListFile)) {
-			final Result<PresenceConditionList> loadedPCList = FileHandler.load(pcListFile, format);
+			final Result<PresenceConditionList> loadedPCList = load(pcListFile, format);
 			if (loadedPCList.isPresent()) {
 				return loadedPCList.get();
 			} else {
 				Logger.logProblems(loadedPCList.getProblems());
 			}
 		}
-		final PresenceConditionList pcList = new Converter().convert(fmFormula, extractDir);
+		final Converter converter = createConverter();
+		converter.setFilteredPCsFile(pcListDir.resolve("filtered_pcs.list"));
+		final PresenceConditionList pcList = converter.convert(fmFormula, extractDir);
 		if (pcList != null) {
+			saveFeatureIndex(converter, pcListDir);
 			if (saveResults) {
-				FileHandler.save(pcList, pcListFile, format);
+				save(pcList, pcListFile, format);
 			}
 			return pcList;
 		} else {
@@ -109,23 +387,256 @@ public class PCExtractor {
 		}
 	}
 
-	private Expressions group(PresenceConditionList pcList, Path pcListDir) throws Exception, IOException {
+	private UnboundPresenceConditionList convertUnbound(Path extractDir, Path pcListDir) throws IOException {
+		final SerializableObjectFormat<UnboundPresenceConditionList> format = new SerializableObjectFormat<>();
+		final Path unboundListFile = pcListDir.resolve("pclist_unbound." + format.getFileExtension());
+		if (Files.exists(unboundListFile)) {
+			final Result<UnboundPresenceConditionList> loadedList = load(unboundListFile, format);
+			if (loadedList.isPresent()) {
+				return loadedList.get();
+			} else {
+				Logger.logProblems(loadedList.getProblems());
+			}
+		}
+		final Converter converter = new Converter();
+		converter.setCompression(compression);
+		converter.setContentCacheSize(contentCacheSize);
+		final UnboundPresenceConditionList unboundList = converter.convertUnbound(extractDir);
+		if (unboundList != null) {
+			saveFeatureIndex(converter, pcListDir);
+			if (saveResults) {
+				save(unboundList, unboundListFile, format);
+			}
+		}
+		return unboundList;
+	}
+
+	private PresenceConditionList bind(UnboundPresenceConditionList unboundList, CNF fmFormula, Path modelDir)
+		throws IOException {
+		final SerializableObjectFormat<PresenceConditionList> format = new SerializableObjectFormat<>();
+		final Path pcListFile = modelDir.resolve("pclist_fm." + format.getFileExtension());
+		if (Files.exists(pcListFile)) {
+			final Result<PresenceConditionList> loadedPCList = load(pcListFile, format);
+			if (loadedPCList.isPresent()) {
+				return loadedPCList.get();
+			} else {
+				Logger.logProblems(loadedPCList.getProblems());
+			}
+		}
+		final PresenceConditionList pcList = new Converter().bind(unboundList, fmFormula);
+		if (saveResults) {
+			save(pcList, pcListFile, format);
+		}
+		return pcList;
+	}
+
+	private Path convertStreaming(CNF fmFormula, Path extractDir, Path pcListDir) throws IOException {
+		final Path pcStreamFile = pcListDir.resolve("pclist_fm.pcs");
+		if (Files.exists(pcStreamFile)) {
+			return pcStreamFile;
+		}
+		final Path tempFile = pcListDir.resolve("pclist_fm.pcs.tmp");
+		final Converter converter = createConverter();
+		converter.setFilteredPCsFile(pcListDir.resolve("filtered_pcs.list"));
+		boolean converted = false;
+		try (PresenceConditionWriter writer = new PresenceConditionWriter(tempFile, compression)) {
+			if (!converter.convert(fmFormula, extractDir, writer)) {
+				return null;
+			}
+			writer.finish(converter.getModelFormula(), converter.getPCNames());
+			converted = true;
+			saveFeatureIndex(converter, pcListDir);
+		} finally {
+			if (!converted) {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+		move(tempFile, pcStreamFile);
+		return pcStreamFile;
+	}
+
+	private void saveFeatureIndex(Converter converter, Path pcListDir) throws IOException {
+		final FeatureIndex featureIndex = converter.getFeatureIndex();
+		if (saveResults && (featureIndex != null)) {
+			final SerializableObjectFormat<FeatureIndex> format = new SerializableObjectFormat<>();
+			save(featureIndex, pcListDir.resolve("feature_index." + format.getFileExtension()), format);
+		}
+	}
+
+	private void updateFeatureIndex(Path pcListDir, Path extractDir, CNF formula, FeatureIndex changedFiles,
+		List<Path> removedFiles) throws IOException {
+		if (!saveResults) {
+			return;
+		}
+		final SerializableObjectFormat<FeatureIndex> format = new SerializableObjectFormat<>();
+		final Path featureIndexFile = pcListDir.resolve("feature_index." + format.getFileExtension());
+		FeatureIndex featureIndex = null;
+		if ((changedFiles != null) && Files.exists(featureIndexFile)) {
+			final Result<FeatureIndex> loadedIndex = load(featureIndexFile, format);
+			if (loadedIndex.isPresent()) {
+				featureIndex = loadedIndex.get();
+				featureIndex.update(changedFiles, removedFiles.stream() //
+					.map(Path::toString) //
+					.collect(Collectors.toList()));
+			} else {
+				Logger.logProblems(loadedIndex.getProblems());
+			}
+		}
+		if (featureIndex == null) {
+			featureIndex = createConverter().createFeatureIndex(formula, extractDir);
+		}
+		if (featureIndex != null) {
+			save(featureIndex, featureIndexFile, format);
+		} else {
+			Files.deleteIfExists(featureIndexFile);
+		}
+	}
+
+	private Converter createConverter() {
+		final Converter converter = new Converter();
+		converter.setFormulaCache(formulaCache);
+		converter.setCompression(compression);
+		converter.setContentCacheSize(contentCacheSize);
+		return converter;
+	}
+
+	private <T> void save(T object, Path file, SerializableObjectFormat<T> format) throws IOException {
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			if (compression == Compression.NONE) {
+				FileHandler.save(object, tempFile, format);
+			} else {
+				try (ObjectOutputStream out = new ObjectOutputStream(compression.newOutputStream(tempFile))) {
+					out.writeObject(object);
+				}
+			}
+			move(tempFile, file);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Result<T> load(Path file, SerializableObjectFormat<T> format) {
+		try {
+			if (Files.isReadable(file) && (Compression.detect(file) != Compression.NONE)) {
+				try (ObjectInputStream in = new ObjectInputStream(Compression.newInputStream(file))) {
+					return Result.of((T) in.readObject());
+				}
+			}
+		} catch (IOException | ClassNotFoundException | ClassCastException e) {
+			return Result.empty(e);
+		}
+		return FileHandler.load(file, format);
+	}
+
+	private static Result<PresenceConditionList> loadPresenceConditionList(Path pcListDir) {
+		final SerializableObjectFormat<PresenceConditionList> format = new SerializableObjectFormat<>();
+		return load(pcListDir.resolve("pclist_fm." + format.getFileExtension()), format);
+	}
+
+	private Expressions applyDelta(Path pcListDir, PresenceConditionList pcList, PresenceConditionDelta delta)
+		throws Exception {
+		final List<PresenceCondition> changedPCs = pcList.apply(delta);
+		changedPCs.addAll(delta.getPresenceConditions());
+		final SerializableObjectFormat<PresenceConditionList> pcListFormat = new SerializableObjectFormat<>();
+		save(pcList, pcListDir.resolve("pclist_fm." + pcListFormat.getFileExtension()), pcListFormat);
+
+		final SerializableObjectFormat<Expressions> format = new SerializableObjectFormat<>();
+		final Path expFile = pcListDir.resolve(getGroupedFileName(format));
+		final Grouper grouper = createGrouper();
+		Expressions expressions = null;
+		if (Files.exists(expFile)) {
+			final Result<Expressions> loadedExpressions = load(expFile, format);
+			if (loadedExpressions.isPresent()) {
+				if (grouper.update(loadedExpressions.get(), pcList, groupingValue, changedPCs)) {
+					expressions = loadedExpressions.get();
+				}
+			} else {
+				Logger.logProblems(loadedExpressions.getProblems());
+			}
+		}
+		if (expressions == null) {
+			expressions = grouper.group(pcList, groupingValue);
+		}
+		save(expressions, expFile, format);
+		deleteStaleArtifacts(pcListDir, expFile);
+		Logger.logInfo("Applied delta of " + delta.getFileCount() + " files (" + changedPCs.size()
+			+ " changed presence conditions)");
+		return expressions;
+	}
+
+	private void invalidateOtherConversions(Path outputPath, String systemName, Path pcListDir) throws IOException {
+		final Path systemDir = outputPath.resolve("pclist").resolve(systemName);
+		final List<Path> staleFiles;
+		try (Stream<Path> files = Files.walk(systemDir)) {
+			staleFiles = files.filter(Files::isRegularFile) //
+				.filter(file -> !file.getParent().equals(pcListDir)
+					|| file.getFileName().toString().startsWith("pclist_unbound.")) //
+				.collect(Collectors.toList());
+		}
+		for (final Path file : staleFiles) {
+			Files.delete(file);
+		}
+	}
+
+	private void deleteStaleArtifacts(Path pcListDir, Path expFile) throws IOException {
+		Files.deleteIfExists(pcListDir.resolve("pclist_fm.pcs"));
+		try (Stream<Path> files = Files.list(pcListDir)) {
+			for (final Path file : files.collect(Collectors.toList())) {
+				if (file.getFileName().toString().startsWith("grouped_") && !file.equals(expFile)) {
+					Files.delete(file);
+				}
+			}
+		}
+	}
+
+	private Grouper createGrouper() {
+		final Grouper grouper = new Grouper();
+		grouper.setUseBDD(useBDD);
+		grouper.setGroupWeight(groupWeight);
+		grouper.setTargetGroupSize(targetGroupSize);
+		grouper.setGroupCount(groupCount);
+		return grouper;
+	}
+
+	private Expressions group(Path pcStreamFile, Path pcListDir) throws Exception {
+		return group(pcListDir, () -> {
+			try (PresenceConditionReader reader = new PresenceConditionReader(pcStreamFile)) {
+				return createGrouper().group(reader, groupingValue);
+			}
+		});
+	}
+
+	private Expressions group(PresenceConditionList pcList, Path pcListDir) throws Exception {
+		return group(pcListDir, () -> createGrouper().group(pcList, groupingValue));
+	}
+
+	private Expressions group(Path pcListDir, Callable<Expressions> grouper) throws Exception {
 		final SerializableObjectFormat<Expressions> format = new SerializableObjectFormat<>();
-		final Path expFile = pcListDir.resolve("grouped_" + groupingValue + "." + format.getFileExtension());
+		final Path expFile = pcListDir.resolve(getGroupedFileName(format));
 		if (Files.exists(expFile)) {
-			final Result<Expressions> loadedExpressions = FileHandler.load(expFile, format);
+			final Result<Expressions> loadedExpressions = load(expFile, format);
 			if (loadedExpressions.isPresent()) {
 				return loadedExpressions.get();
 			} else {
 				Logger.logProblems(loadedExpressions.getProblems());
 			}
 		}
-		final Expressions expressions = new Grouper().group(pcList, groupingValue);
+		final Expressions expressions = grouper.call();
 		if (expressions == null) {
 			return null;
 		}
 		if (saveResults) {
-			FileHandler.save(expressions, expFile, format);
+			save(expressions, expFile, format);
 		}
 		return expressions;
 	}
@@ -0,0 +1,407 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.*;
+import org.spldev.pc_extraction.convert.*;
+import org.spldev.pc_extraction.convert.Grouper.*;
+import org.spldev.pc_extraction.extraction.cpp.*;
+import org.spldev.pc_extraction.util.*;
+import org.spldev.util.data.*;
+import org.spldev.util.logging.*;
+
+public class PCExtractorDaemon implements Closeable {
+
+	private static final long ENTRY_OVERHEAD = 64;
+
+	private final ResidentCache<String, CNF> models;
+	private final ResidentCache<String, Map<String, Formula>> formulaCaches;
+	private final ResidentCache<String, Expressions> expressions;
+	private final ResidentCache<String, FeatureIndex> featureIndexes;
+	private final ConcurrentHashMap<String, Object> systemLocks = new ConcurrentHashMap<>();
+	private final ServerSocket serverSocket;
+	private final byte[] token;
+
+	private int workerCount = 4;
+	private int clientTimeout = 60_000;
+	private ExecutorService workers;
+
+	private volatile boolean running = true;
+
+	public PCExtractorDaemon(int port, long memoryBudget, String token) throws IOException {
+		this.token = token.getBytes(StandardCharsets.UTF_8);
+		models = new ResidentCache<>(memoryBudget / 2, PCExtractorDaemon::estimateSize);
+		formulaCaches = new ResidentCache<>(memoryBudget / 4, cache -> cache.size() * ENTRY_OVERHEAD * 8);
+		expressions = new ResidentCache<>(memoryBudget / 8, PCExtractorDaemon::estimateSize);
+		featureIndexes = new ResidentCache<>(memoryBudget / 8, PCExtractorDaemon::estimateSize);
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	public int getClientTimeout() {
+		return clientTimeout;
+	}
+
+	public void setClientTimeout(int clientTimeout) {
+		this.clientTimeout = clientTimeout;
+	}
+
+	public void run() {
+		Logger.logInfo("Listening on port " + getPort());
+		workers = Executors.newFixedThreadPool(workerCount);
+		try {
+			while (running) {
+				try {
+					final Socket socket = serverSocket.accept();
+					socket.setSoTimeout(clientTimeout);
+					workers.execute(() -> handle(socket));
+				} catch (final IOException e) {
+					if (running) {
+						Logger.logError(e);
+					}
+				}
+			}
+		} finally {
+			workers.shutdown();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		serverSocket.close();
+	}
+
+	private void handle(Socket socket) {
+		try (socket) {
+			handleRequests(socket);
+		} catch (final SocketTimeoutException e) {
+			Logger.logInfo("Closed idle connection from " + socket.getRemoteSocketAddress());
+		} catch (final IOException e) {
+			if (running) {
+				Logger.logError(e);
+			}
+		}
+	}
+
+	private void handleRequests(Socket socket) throws IOException {
+		final BufferedReader reader = new BufferedReader(
+			new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+		final BufferedWriter writer = new BufferedWriter(
+			new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+		if (!authenticate(reader.readLine())) {
+			Logger.logError("Rejected unauthenticated connection from " + socket.getRemoteSocketAddress());
+			writer.write("ERROR Authentication failed");
+			writer.newLine();
+			writer.flush();
+			return;
+		}
+		writer.write("OK");
+		writer.newLine();
+		writer.flush();
+		for (String request = reader.readLine(); (request != null) && running; request = reader.readLine()) {
+			if (request.isBlank()) {
+				continue;
+			}
+			String response;
+			final long start = System.nanoTime();
+			try {
+				response = "OK " + process(request.trim().split("\\s+"));
+			} catch (final Exception e) {
+				Logger.logError(e);
+				response = "ERROR " + e.getMessage();
+			}
+			Logger.logInfo(request + " (" + ((System.nanoTime() - start) / 1_000_000) + "ms)");
+			writer.write(response);
+			writer.newLine();
+			writer.flush();
+		}
+	}
+
+	private boolean authenticate(String request) {
+		if ((request == null) || !request.startsWith("auth ")) {
+			return false;
+		}
+		final byte[] requestToken = request.substring("auth ".length()).trim().getBytes(StandardCharsets.UTF_8);
+		return MessageDigest.isEqual(token, requestToken);
+	}
+
+	private String process(String[] request) throws Exception {
+		switch (request[0]) {
+		case "extract":
+		case "convert":
+		case "group":
+		case "query": {
+			checkArguments(request, 3, 4, 5, 6);
+			synchronized (systemLocks.computeIfAbsent(getSystemKey(Paths.get(request[1]), getSystemName(request)),
+				key -> new Object())) {
+				return processSystem(request);
+			}
+		}
+		default:
+			return processGlobal(request);
+		}
+	}
+
+	private String processSystem(String[] request) throws Exception {
+		switch (request[0]) {
+		case "load": {
+			checkArguments(request, 3);
+			return Integer.toString(getModel(request[1], request[2]).getVariableMap().getNames().size());
+		}
+		case "extract": {
+			checkArguments(request, 3, 5);
+			final Path outputPath = Paths.get(request[1]);
+			final Path systemPath = Paths.get(request[2]);
+			final String systemName = systemPath.getFileName().toString();
+			final PCExtractor pcExtractor = createExtractor(request, 3, Grouping.PC_ALL_FM);
+			if (!pcExtractor.extractPresenceConditions(outputPath, systemPath)) {
+				throw new IOException("Could not extract presence conditions of " + systemPath);
+			}
+			invalidate(pcExtractor, outputPath, systemName);
+			return Integer.toString(getExpressions(pcExtractor, request, 3, outputPath, systemName,
+				Grouping.PC_ALL_FM).getExpressions().size());
+		}
+		case "convert": {
+			checkArguments(request, 3, 5);
+			final PCExtractor pcExtractor = createExtractor(request, 3, Grouping.PC_ALL_FM);
+			final PresenceConditionList pcList = pcExtractor.convertPresenceConditions(Paths.get(request[1]),
+				request[2], getModel(request, 3));
+			updateFormulaCache(request, 3);
+			return Integer.toString(pcList != null ? pcList.size() : 0);
+		}
+		case "group": {
+			checkArguments(request, 4, 6);
+			final Grouping grouping = Grouping.valueOf(request[3]);
+			final PCExtractor pcExtractor = createExtractor(request, 4, grouping);
+			return Integer.toString(getExpressions(pcExtractor, request, 4, Paths.get(request[1]), request[2],
+				grouping).getExpressions().size());
+		}
+		case "query": {
+			checkArguments(request, 4, 6);
+			final Path outputPath = Paths.get(request[1]);
+			final PCExtractor pcExtractor = createExtractor(request, 4, Grouping.PC_ALL_FM);
+			final FeatureIndex featureIndex = featureIndexes.get(getSystemKey(outputPath, request[2]) + "|"
+				+ getModelKey(request, 4), key -> {
+					final Result<FeatureIndex> loadedIndex = pcExtractor.loadFeatureIndex(outputPath, request[2]);
+					if (loadedIndex.isPresent()) {
+						return loadedIndex.get();
+					}
+					throw new IOException("Could not load feature index of " + request[2]);
+				});
+			return featureIndex.query(request[3]).stream() //
+				.map(FeatureIndex.Occurrence::toString) //
+				.collect(Collectors.joining("; "));
+		}
+		default:
+			throw new IllegalArgumentException("Unknown request: " + request[0]);
+		}
+	}
+
+	private String processGlobal(String[] request) throws Exception {
+		switch (request[0]) {
+		case "evict": {
+			checkArguments(request, 1);
+			models.clear();
+			formulaCaches.clear();
+			expressions.clear();
+			featureIndexes.clear();
+			return "";
+		}
+		case "status": {
+			checkArguments(request, 1);
+			return models.size() + " models (" + models.getMemoryUsage() + " bytes), " //
+				+ formulaCaches.size() + " formula caches (" + formulaCaches.getMemoryUsage() + " bytes), " //
+				+ expressions.size() + " expressions (" + expressions.getMemoryUsage() + " bytes), " //
+				+ featureIndexes.size() + " feature indexes (" + featureIndexes.getMemoryUsage() + " bytes)";
+		}
+		case "shutdown": {
+			checkArguments(request, 1);
+			close();
+			return "";
+		}
+		default:
+			throw new IllegalArgumentException("Unknown request: " + request[0]);
+		}
+	}
+
+	private PCExtractor createExtractor(String[] request, int modelIndex, Grouping grouping) {
+		final PCExtractor pcExtractor = new PCExtractor();
+		pcExtractor.setGroupingValue(grouping);
+		if (request.length > modelIndex) {
+			pcExtractor.setModelName(
+				PCExtractor.getModelDirectoryName(request[modelIndex], Paths.get(request[modelIndex + 1])));
+			pcExtractor.setFormulaCache(formulaCaches.get(getModelKey(request[modelIndex], request[modelIndex + 1]),
+				key -> Collections.synchronizedMap(new HashMap<>())));
+		}
+		return pcExtractor;
+	}
+
+	private Expressions getExpressions(PCExtractor pcExtractor, String[] request, int modelIndex, Path outputPath,
+		String systemName, Grouping grouping) throws Exception {
+		final String key = getSystemKey(outputPath, systemName) + "|" + getModelKey(request, modelIndex) + "|"
+			+ grouping;
+		final CNF model = getModel(request, modelIndex);
+		final Expressions result = expressions.get(key, k -> {
+			final PresenceConditionList pcList = pcExtractor.convertPresenceConditions(outputPath, systemName, model);
+			return pcList != null ? pcExtractor.groupPresenceConditions(outputPath, systemName, pcList) : null;
+		});
+		updateFormulaCache(request, modelIndex);
+		if (result == null) {
+			throw new IOException("Could not create expressions for " + systemName);
+		}
+		return result;
+	}
+
+	private void invalidate(PCExtractor pcExtractor, Path outputPath, String systemName) throws IOException {
+		final String systemKey = getSystemKey(outputPath, systemName) + "|";
+		expressions.removeIf(key -> key.startsWith(systemKey));
+		featureIndexes.removeIf(key -> key.startsWith(systemKey));
+		pcExtractor.deleteConversionFiles(outputPath, systemName);
+	}
+
+	private void updateFormulaCache(String[] request, int modelIndex) {
+		if (request.length > modelIndex) {
+			formulaCaches.update(getModelKey(request[modelIndex], request[modelIndex + 1]));
+		}
+	}
+
+	private CNF getModel(String[] request, int modelIndex) throws Exception {
+		return request.length > modelIndex ? getModel(request[modelIndex], request[modelIndex + 1]) : null;
+	}
+
+	private CNF getModel(String name, String kbuildOutputPath) throws Exception {
+		return models.get(getModelKey(name, kbuildOutputPath),
+			key -> new KconfigDimacsReader().load(name, Paths.get(kbuildOutputPath)));
+	}
+
+	private static String getSystemName(String[] request) {
+		return request[0].equals("extract") ? Paths.get(request[2]).getFileName().toString() : request[2];
+	}
+
+	private static String getSystemKey(Path outputPath, String systemName) {
+		return outputPath.toAbsolutePath().normalize() + "|" + systemName;
+	}
+
+	private static String getModelKey(String[] request, int modelIndex) {
+		return request.length > modelIndex ? getModelKey(request[modelIndex], request[modelIndex + 1]) : "";
+	}
+
+	private static String getModelKey(String name, String kbuildOutputPath) {
+		return Paths.get(kbuildOutputPath).toAbsolutePath().normalize() + "|" + name;
+	}
+
+	private static void checkArguments(String[] request, int... allowedLengths) {
+		for (final int allowedLength : allowedLengths) {
+			if (request.length == allowedLength) {
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Wrong number of arguments for " + request[0]);
+	}
+
+	private static long estimateSize(CNF cnf) {
+		return (cnf.getVariableMap().getNames().size() * ENTRY_OVERHEAD) + estimateSize(cnf.getClauses());
+	}
+
+	private static long estimateSize(Expressions expressions) {
+		return expressions.getExpressions().stream() //
+			.mapToLong(PCExtractorDaemon::estimateSize) //
+			.sum();
+	}
+
+	private static long estimateSize(List<ClauseList> expressionGroup) {
+		if (expressionGroup instanceof LiteralExpressionList) {
+			final LiteralExpressionList literalExpressions = (LiteralExpressionList) expressionGroup;
+			return expressionGroup.subList(0, literalExpressions.getHeadSize()).stream() //
+				.mapToLong(PCExtractorDaemon::estimateSize) //
+				.sum() + (literalExpressions.getRunCount() * 8L) + ENTRY_OVERHEAD;
+		}
+		return expressionGroup.stream() //
+			.mapToLong(PCExtractorDaemon::estimateSize) //
+			.sum();
+	}
+
+	private static long estimateSize(FeatureIndex featureIndex) {
+		return ((featureIndex.getFileCount() + featureIndex.getVariableNames().size()) * ENTRY_OVERHEAD)
+			+ featureIndex.getPostingSize();
+	}
+
+	private static long estimateSize(ClauseList clauses) {
+		return ENTRY_OVERHEAD + clauses.stream().mapToLong(clause -> ENTRY_OVERHEAD + (4L * clause.size())).sum();
+	}
+
+	private static String readToken(Path tokenFile) throws IOException {
+		if (!Files.exists(tokenFile)) {
+			final byte[] randomBytes = new byte[32];
+			new SecureRandom().nextBytes(randomBytes);
+			final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+			Files.createFile(tokenFile,
+				PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+			Files.write(tokenFile, token.getBytes(StandardCharsets.UTF_8));
+			Logger.logInfo("Wrote new access token to " + tokenFile);
+			return token;
+		}
+		final String token = new String(Files.readAllBytes(tokenFile), StandardCharsets.UTF_8).trim();
+		if (token.isEmpty()) {
+			throw new IOException("Token file " + tokenFile + " is empty");
+		}
+		return token;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if ((args.length < 2) || (args.length > 3)) {
+			System.err.println("Usage: <port> <token file> [<memory budget in MB>]");
+			System.exit(2);
+		}
+		final int port = Integer.parseInt(args[0]);
+		final String token = readToken(Paths.get(args[1]));
+		final long memoryBudget = (args.length > 2 ? Long.parseLong(args[2]) : 1024L) << 20;
+		try (PCExtractorDaemon daemon = new PCExtractorDaemon(port, memoryBudget, token)) {
+			daemon.run();
+		}
+	}
+
+}
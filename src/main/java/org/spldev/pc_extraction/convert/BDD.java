@@ -0,0 +1,291 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+
+public class BDD implements Serializable {
+
+	private static final long serialVersionUID = 6310462271806418723L;
+
+	public static final int FALSE = 0;
+	public static final int TRUE = 1;
+
+	private static final int MAX_CACHE_SIZE = 1 << 20;
+
+	private final int[] levelVariables;
+	private final int[] variableLevels;
+	private final int terminalLevel;
+
+	private int[] levels = new int[1024];
+	private int[] lows = new int[1024];
+	private int[] highs = new int[1024];
+	private int nodeCount;
+
+	private int[] uniqueTable = new int[2048];
+
+	private transient HashMap<Long, Integer> andCache;
+	private transient HashMap<Long, Integer> orCache;
+	private transient HashMap<Integer, Integer> notCache;
+
+	public BDD(VariableMap variableMap) {
+		this(defaultOrder(variableMap.getNames().size()));
+	}
+
+	public BDD(int[] variableOrder) {
+		levelVariables = variableOrder.clone();
+		variableLevels = new int[variableOrder.length + 1];
+		for (int level = 0; level < variableOrder.length; level++) {
+			variableLevels[variableOrder[level]] = level;
+		}
+		terminalLevel = variableOrder.length;
+		levels[FALSE] = terminalLevel;
+		levels[TRUE] = terminalLevel;
+		nodeCount = 2;
+	}
+
+	private static int[] defaultOrder(int variableCount) {
+		final int[] order = new int[variableCount];
+		for (int i = 0; i < variableCount; i++) {
+			order[i] = i + 1;
+		}
+		return order;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int literal(int literal) {
+		final int level = variableLevels[Math.abs(literal)];
+		return literal > 0 ? mk(level, FALSE, TRUE) : mk(level, TRUE, FALSE);
+	}
+
+	public int fromDnf(ClauseList clauses) {
+		int result = FALSE;
+		for (final LiteralList clause : clauses) {
+			result = or(result, conjunction(clause));
+		}
+		return result;
+	}
+
+	private int conjunction(LiteralList clause) {
+		final Integer[] sortedLiterals = Arrays.stream(clause.getLiterals()).boxed().toArray(Integer[]::new);
+		Arrays.sort(sortedLiterals, (l1, l2) -> Integer.compare(variableLevels[Math.abs(l2)],
+			variableLevels[Math.abs(l1)]));
+		int result = TRUE;
+		for (final int literal : sortedLiterals) {
+			final int level = variableLevels[Math.abs(literal)];
+			if (levels[result] == level) {
+				if ((literal > 0 ? lows[result] : highs[result]) != FALSE) {
+					return FALSE;
+				}
+			} else {
+				result = literal > 0 ? mk(level, FALSE, result) : mk(level, result, FALSE);
+			}
+		}
+		return result;
+	}
+
+	public int not(int root) {
+		if (notCache == null) {
+			notCache = new HashMap<>();
+		}
+		int[] tasks = new int[64];
+		int taskCount = 0;
+		int[] results = new int[64];
+		int resultCount = 0;
+		tasks[taskCount++] = root;
+		while (taskCount > 0) {
+			final int task = tasks[--taskCount];
+			int result;
+			if (task < 0) {
+				final int node = ~task;
+				final int high = results[--resultCount];
+				final int low = results[--resultCount];
+				result = mk(levels[node], low, high);
+				if (notCache.size() > MAX_CACHE_SIZE) {
+					notCache.clear();
+				}
+				notCache.put(node, result);
+			} else if (task <= TRUE) {
+				result = task == FALSE ? TRUE : FALSE;
+			} else {
+				final Integer cached = notCache.get(task);
+				if (cached == null) {
+					if ((taskCount + 3) > tasks.length) {
+						tasks = Arrays.copyOf(tasks, tasks.length << 1);
+					}
+					tasks[taskCount++] = ~task;
+					tasks[taskCount++] = highs[task];
+					tasks[taskCount++] = lows[task];
+					continue;
+				}
+				result = cached;
+			}
+			if (resultCount == results.length) {
+				results = Arrays.copyOf(results, results.length << 1);
+			}
+			results[resultCount++] = result;
+		}
+		return results[0];
+	}
+
+	public int and(int node1, int node2) {
+		if (andCache == null) {
+			andCache = new HashMap<>();
+		}
+		return apply(node1, node2, true, andCache);
+	}
+
+	public int or(int node1, int node2) {
+		if (orCache == null) {
+			orCache = new HashMap<>();
+		}
+		return apply(node1, node2, false, orCache);
+	}
+
+	private int apply(int root1, int root2, boolean and, HashMap<Long, Integer> cache) {
+		int[] tasks = new int[96];
+		int taskCount = 0;
+		int[] results = new int[64];
+		int resultCount = 0;
+		tasks[taskCount++] = root1;
+		tasks[taskCount++] = root2;
+		tasks[taskCount++] = 0;
+		while (taskCount > 0) {
+			final boolean combine = tasks[--taskCount] != 0;
+			final int node2 = tasks[--taskCount];
+			final int node1 = tasks[--taskCount];
+			final int level = Math.min(levels[node1], levels[node2]);
+			int result;
+			if (combine) {
+				final int high = results[--resultCount];
+				final int low = results[--resultCount];
+				result = mk(level, low, high);
+				if (cache.size() > MAX_CACHE_SIZE) {
+					cache.clear();
+				}
+				cache.put(getKey(node1, node2), result);
+			} else {
+				result = getTerminal(node1, node2, and);
+				if (result < 0) {
+					final Integer cached = cache.get(getKey(node1, node2));
+					if (cached == null) {
+						if ((taskCount + 9) > tasks.length) {
+							tasks = Arrays.copyOf(tasks, tasks.length << 1);
+						}
+						final boolean split1 = levels[node1] == level;
+						final boolean split2 = levels[node2] == level;
+						tasks[taskCount++] = node1;
+						tasks[taskCount++] = node2;
+						tasks[taskCount++] = 1;
+						tasks[taskCount++] = split1 ? highs[node1] : node1;
+						tasks[taskCount++] = split2 ? highs[node2] : node2;
+						tasks[taskCount++] = 0;
+						tasks[taskCount++] = split1 ? lows[node1] : node1;
+						tasks[taskCount++] = split2 ? lows[node2] : node2;
+						tasks[taskCount++] = 0;
+						continue;
+					}
+					result = cached;
+				}
+			}
+			if (resultCount == results.length) {
+				results = Arrays.copyOf(results, results.length << 1);
+			}
+			results[resultCount++] = result;
+		}
+		return results[0];
+	}
+
+	private static int getTerminal(int node1, int node2, boolean and) {
+		final int dominant = and ? FALSE : TRUE;
+		final int neutral = and ? TRUE : FALSE;
+		if ((node1 == dominant) || (node2 == dominant)) {
+			return dominant;
+		} else if ((node1 == neutral) || (node1 == node2)) {
+			return node2;
+		} else if (node2 == neutral) {
+			return node1;
+		}
+		return -1;
+	}
+
+	private static long getKey(int node1, int node2) {
+		return node1 < node2 ? (((long) node1) << 32) | node2 : (((long) node2) << 32) | node1;
+	}
+
+	private int mk(int level, int low, int high) {
+		if (low == high) {
+			return low;
+		}
+		final int mask = uniqueTable.length - 1;
+		int index = hash(level, low, high) & mask;
+		for (int node = uniqueTable[index]; node != 0; node = uniqueTable[index]) {
+			if ((levels[node] == level) && (lows[node] == low) && (highs[node] == high)) {
+				return node;
+			}
+			index = (index + 1) & mask;
+		}
+		if (nodeCount == levels.length) {
+			final int newLength = levels.length << 1;
+			levels = Arrays.copyOf(levels, newLength);
+			lows = Arrays.copyOf(lows, newLength);
+			highs = Arrays.copyOf(highs, newLength);
+		}
+		final int node = nodeCount++;
+		levels[node] = level;
+		lows[node] = low;
+		highs[node] = high;
+		uniqueTable[index] = node;
+		if ((nodeCount << 1) > uniqueTable.length) {
+			rehash();
+		}
+		return node;
+	}
+
+	private void rehash() {
+		uniqueTable = new int[uniqueTable.length << 1];
+		final int mask = uniqueTable.length - 1;
+		for (int node = 2; node < nodeCount; node++) {
+			int index = hash(levels[node], lows[node], highs[node]) & mask;
+			while (uniqueTable[index] != 0) {
+				index = (index + 1) & mask;
+			}
+			uniqueTable[index] = node;
+		}
+	}
+
+	private static int hash(int level, int low, int high) {
+		int hash = level;
+		hash = (31 * hash) + low;
+		hash = (31 * hash) + high;
+		return hash ^ (hash >>> 16);
+	}
+
+}
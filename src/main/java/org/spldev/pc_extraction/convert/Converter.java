@@ -23,8 +23,10 @@
 package org.spldev.pc_extraction.convert;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.*;
 import java.util.stream.*;
 
 import org.spldev.clauses.*;
@@ -42,20 +44,19 @@ import org.spldev.util.logging.*;
 
 public class Converter {
 
-	private static class TempPC {
-		private final String formulaString;
-		private final Formula formula;
-		private final Path sourceFilePath;
-
-		public TempPC(String formulaString, Formula formula, Path sourceFilePath) {
-			this.formulaString = formulaString;
-			this.formula = formula;
-			this.sourceFilePath = sourceFilePath;
-		}
-	}
-
 	private NodeReader nodeReader;
 
+	private CNF modelFormula;
+	private ArrayList<String> pcNames;
+	private BufferedWriter dnfWriter;
+	private Path filteredPCsFile;
+	private Map<String, Formula> formulaCache;
+	private boolean filterVariables;
+	private FeatureIndex featureIndex;
+	private Compression compression = Compression.NONE;
+	private int contentCacheSize = 4096;
+	private long deduplicatedFileCounter;
+
 	public Converter() {
 		nodeReader = new NodeReader();
 		final Symbols symbols = new Symbols(Arrays.asList( //
@@ -69,143 +70,576 @@ public class Converter {
 	}
 
 	public PresenceConditionList convert(CNF fmFormula, Path extractionPath) {
-		if (!Files.isReadable(extractionPath)) {
+		final List<PresenceCondition> convertedPCs = new ArrayList<>();
+		if (!convert(fmFormula, extractionPath, convertedPCs::add)) {
 			return null;
 		}
+		final PresenceConditionList presenceConditionList = new PresenceConditionList(convertedPCs, modelFormula);
+		presenceConditionList.setPCNames(pcNames);
+		return presenceConditionList;
+	}
+
+	public boolean convert(CNF fmFormula, Path extractionPath, Consumer<PresenceCondition> sink) {
+		if (!Files.isReadable(extractionPath)) {
+			return false;
+		}
 		final FileProvider fileProvider = new FileProvider(extractionPath);
 		fileProvider.setFileNameRegex(FileProvider.PCFileRegex);
 
 		if (fmFormula != null) {
-			nodeReader.setVariableNames(fmFormula.getVariableMap().getNames());
+			setVariableNames(fmFormula.getVariableMap().getNames());
 		} else {
-			nodeReader.setVariableNames(null);
+			setVariableNames(null);
 		}
 
-		final Collection<String> pcNames = new LinkedHashSet<>();
-		final List<TempPC> pcFormulas = fileProvider.getFileStream() //
-			.flatMap(p -> {
-				List<String> lines;
-				try {
-					lines = Files.readAllLines(p);
-				} catch (final IOException e) {
-					return Stream.empty();
-				}
-				final Path sourceFilePath = Paths.get(lines.get(0));
-
-				return lines.subList(1, lines.size()).stream() //
-					.filter(expr -> !expr.isEmpty()).distinct() //
-					.map(expr -> {
-						Formula formula = nodeReader.read(expr).get();
-						if (formula == null) {
-							return null;
-						} else {
-							formula = NormalForms.simplifyForNF(formula);
-							Formulas.getVariableStream(formula) //
-								.map(Variable::getName) //
-								.forEach(pcNames::add);
-							return new TempPC(expr, formula, sourceFilePath);
-						}
-					}).filter(Objects::nonNull) //
-				;
-			}).collect(Collectors.toList());
-
-		final CNF modelFormula = fmFormula != null ? fmFormula : new CNF(VariableMap.fromNames(pcNames));
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final HashMap<String, Formula> parsedFormulas;
+		if (fmFormula != null) {
+			parsedFormulas = null;
+			modelFormula = fmFormula;
+		} else {
+			parsedFormulas = parseAll(fileProvider, pcNameSet, formulaCache);
+			modelFormula = new CNF(VariableMap.fromNames(pcNameSet));
+		}
 
 		final NodeWriter nodeWriter = new NodeWriter();
 		nodeWriter.setSymbols(ShortSymbols.INSTANCE);
 
-		final List<String> convertedDNFs = new ArrayList<>();
+		final Path dnfPCsFile = filteredPCsFile != null ? filteredPCsFile
+			: extractionPath.resolve("filtered_pcs.list");
+		try {
+			dnfWriter = compression.newBufferedWriter(dnfPCsFile);
+		} catch (final IOException e) {
+			Logger.logError(e);
+			dnfWriter = null;
+		}
 
+		final VariableMap variableMap = modelFormula.getVariableMap();
 		final HashMap<String, PresenceCondition> pcMap = new HashMap<>();
-		final List<PresenceCondition> convertedPCs = pcFormulas.stream() //
-			.map(tempPC -> {
-				PresenceCondition pc = pcMap.get(tempPC.formulaString);
-				if (pc == null) {
-					final VariableMap variableMap = modelFormula.getVariableMap();
-					final CNF dnf;
-					final CNF negatedDnf;
-					if (tempPC.formula instanceof Literal) {
-						convertedDNFs.add(nodeWriter.write(tempPC.formula));
-						final LiteralList clause = getClause(tempPC.formula, variableMap);
-						if (clause != null) {
-							final ClauseList clauses = new ClauseList();
-							clauses.add(clause);
-							dnf = new CNF(variableMap, clauses);
-							negatedDnf = new CNF(variableMap, clauses.negate());
-						} else {
-							dnf = null;
-							negatedDnf = null;
+		final HashMap<String, String[]> expressionVariables = new HashMap<>();
+		final Map<ByteBuffer, PresenceCondition[]> payloadPCs = createContentCache();
+		featureIndex = new FeatureIndex();
+		deduplicatedFileCounter = 0;
+		try {
+			fileProvider.getFileStream() //
+				.map(this::readLines) //
+				.filter(Objects::nonNull) //
+				.forEach(lines -> {
+					final Path sourceFilePath = Paths.get(lines.get(0));
+					final List<String> payload = lines.subList(1, lines.size());
+					final ByteBuffer digest = contentCacheSize > 0 ? ContentDigest.of(payload) : null;
+					final PresenceCondition[] cachedPCs = digest != null ? payloadPCs.get(digest) : null;
+					if (cachedPCs != null) {
+						deduplicatedFileCounter++;
+						for (final PresenceCondition pc : cachedPCs) {
+							sink.accept(new PresenceCondition(sourceFilePath, pc.getDnf(), pc.getNegatedDnf()));
 						}
-					} else {
-						dnf = Formulas.toDNF(tempPC.formula).map(f -> {
-							convertedDNFs.add(nodeWriter.write(f));
-							final ClauseList clauses = new ClauseList();
-							f.getChildren().stream() //
-								.map(exp -> getClause(exp, variableMap)) //
-								.filter(Objects::nonNull) //
-								.forEach(clauses::add);
-							return new CNF(variableMap, clauses);
-						}).orElse((CNF) null);
-						negatedDnf = Formulas.toCNF(tempPC.formula).map(f -> {
-							final ClauseList cnfClauses = new ClauseList();
-							f.getChildren().stream() //
-								.map(exp -> getClause(exp, variableMap)) //
-								.filter(Objects::nonNull) //
-								.forEach(cnfClauses::add);
-							return new CNF(variableMap, cnfClauses.negate());
-						}).orElse((CNF) null);
+						featureIndex.addFile(lines.get(0), payload, expressionVariables);
+						return;
 					}
-					if ((negatedDnf == null) || negatedDnf.getClauses().isEmpty() || (negatedDnf.getClauses().get(0)
-						.size() == 0)
-						|| (dnf == null) || dnf.getClauses().isEmpty() || (dnf.getClauses().get(0).size() == 0)) {
-						pc = new PresenceCondition();
-					} else {
-						pc = new PresenceCondition(tempPC.sourceFilePath, dnf, negatedDnf);
+					final Set<PresenceCondition> newPCs = Collections.newSetFromMap(new IdentityHashMap<>());
+					final PresenceCondition[] pcs = payload.stream() //
+						.filter(expr -> !expr.isEmpty()).distinct() //
+						.map(expr -> pcMap.computeIfAbsent(expr, e -> {
+							final Formula formula = parsedFormulas != null ? parsedFormulas.get(e)
+								: parse(e, pcNameSet);
+							if (formula == null) {
+								return new PresenceCondition();
+							}
+							expressionVariables.put(e, getVariableNames(formula));
+							final PresenceCondition newPC = convert(formula, sourceFilePath, variableMap, nodeWriter);
+							newPCs.add(newPC);
+							return newPC;
+						})) //
+						.filter(pc -> pc.getDnf() != null) //
+						.toArray(PresenceCondition[]::new);
+					if (digest != null) {
+						payloadPCs.put(digest, pcs);
 					}
-					pcMap.put(tempPC.formulaString, pc);
-					return pc;
-				} else {
-					if (pc.getDnf() != null) {
-						return new PresenceCondition(tempPC.sourceFilePath, pc.getDnf(), pc.getNegatedDnf());
-					} else {
-						return pc;
+					for (final PresenceCondition pc : pcs) {
+						sink.accept(newPCs.contains(pc) ? pc
+							: new PresenceCondition(sourceFilePath, pc.getDnf(), pc.getNegatedDnf()));
 					}
+					featureIndex.addFile(lines.get(0), payload, expressionVariables);
+				});
+		} finally {
+			closeDNFWriter();
+		}
+		featureIndex.trim();
+		logDeduplicatedFiles();
+
+		pcNames = new ArrayList<>(pcNameSet);
+		return true;
+	}
+
+	public PresenceConditionDelta convertFiles(CNF formula, List<Path> pcFiles) {
+		setVariableNames(formula.getVariableMap().getNames());
+		final NodeWriter nodeWriter = new NodeWriter();
+		nodeWriter.setSymbols(ShortSymbols.INSTANCE);
+		dnfWriter = null;
+
+		final VariableMap variableMap = formula.getVariableMap();
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final HashMap<String, PresenceCondition> pcMap = new HashMap<>();
+		final HashMap<String, String[]> expressionVariables = new HashMap<>();
+		final PresenceConditionDelta delta = new PresenceConditionDelta();
+		featureIndex = new FeatureIndex();
+		for (final Path pcFile : pcFiles) {
+			final List<String> lines = readLines(pcFile);
+			if (lines == null) {
+				Logger.logError("Could not read " + pcFile);
+				continue;
+			}
+			final Path sourceFilePath = Paths.get(lines.get(0));
+			final List<String> payload = lines.subList(1, lines.size());
+			final List<PresenceCondition> pcs = payload.stream() //
+				.filter(expr -> !expr.isEmpty()).distinct() //
+				.map(expr -> pcMap.computeIfAbsent(expr, e -> {
+					final Formula parsedFormula = parse(e, pcNameSet);
+					if (parsedFormula == null) {
+						return new PresenceCondition();
+					}
+					expressionVariables.put(e, getVariableNames(parsedFormula));
+					return convert(parsedFormula, sourceFilePath, variableMap, nodeWriter);
+				})) //
+				.filter(pc -> pc.getDnf() != null) //
+				.map(pc -> new PresenceCondition(sourceFilePath, pc.getDnf(), pc.getNegatedDnf())) //
+				.collect(Collectors.toList());
+			delta.updateFile(sourceFilePath, pcs);
+			featureIndex.addFile(lines.get(0), payload, expressionVariables);
+		}
+		featureIndex.trim();
+		modelFormula = formula;
+		pcNames = new ArrayList<>(pcNameSet);
+		return delta;
+	}
+
+	public Set<String> getUnknownVariables(CNF formula, List<Path> pcFiles) {
+		setVariableNames(null);
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final HashSet<String> parsedExpressions = new HashSet<>();
+		for (final Path pcFile : pcFiles) {
+			final List<String> lines = readLines(pcFile);
+			if (lines != null) {
+				lines.subList(1, lines.size()).stream() //
+					.filter(expr -> !expr.isEmpty() && parsedExpressions.add(expr)) //
+					.forEach(expr -> parse(expr, pcNameSet));
+			}
+		}
+		pcNameSet.removeAll(new HashSet<>(formula.getVariableMap().getNames()));
+		return new LinkedHashSet<>(pcNameSet);
+	}
+
+	public FeatureIndex createFeatureIndex(CNF formula, Path extractionPath) {
+		if (!Files.isReadable(extractionPath)) {
+			return null;
+		}
+		final FileProvider fileProvider = new FileProvider(extractionPath);
+		fileProvider.setFileNameRegex(FileProvider.PCFileRegex);
+		setVariableNames(formula != null ? formula.getVariableMap().getNames() : null);
+
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final HashMap<String, String[]> expressionVariables = new HashMap<>();
+		final HashSet<String> parsedExpressions = new HashSet<>();
+		featureIndex = new FeatureIndex();
+		fileProvider.getFileStream() //
+			.map(this::readLines) //
+			.filter(Objects::nonNull) //
+			.forEach(lines -> {
+				final List<String> payload = lines.subList(1, lines.size());
+				payload.stream() //
+					.filter(expr -> !expr.isEmpty() && parsedExpressions.add(expr)) //
+					.forEach(expr -> {
+						final Formula parsedFormula = parse(expr, pcNameSet);
+						if (parsedFormula != null) {
+							expressionVariables.put(expr, getVariableNames(parsedFormula));
+						}
+					});
+				featureIndex.addFile(lines.get(0), payload, expressionVariables);
+			});
+		featureIndex.trim();
+		return featureIndex;
+	}
+
+	public UnboundPresenceConditionList convertUnbound(Path extractionPath) {
+		if (!Files.isReadable(extractionPath)) {
+			return null;
+		}
+		final FileProvider fileProvider = new FileProvider(extractionPath);
+		fileProvider.setFileNameRegex(FileProvider.PCFileRegex);
+		setVariableNames(null);
+
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final HashMap<String, Formula> parsedFormulas = parseAll(fileProvider, pcNameSet, null);
+		modelFormula = new CNF(VariableMap.fromNames(pcNameSet));
+		pcNames = new ArrayList<>(pcNameSet);
+
+		final NodeWriter nodeWriter = new NodeWriter();
+		nodeWriter.setSymbols(ShortSymbols.INSTANCE);
+		dnfWriter = null;
+
+		final VariableMap variableMap = modelFormula.getVariableMap();
+		final UnboundPresenceConditionList unboundList = new UnboundPresenceConditionList(pcNames);
+		final HashMap<String, Integer> expressionIds = new HashMap<>();
+		final HashMap<String, String[]> expressionVariables = new HashMap<>();
+		final Map<ByteBuffer, int[]> payloadIds = createContentCache();
+		featureIndex = new FeatureIndex();
+		deduplicatedFileCounter = 0;
+		fileProvider.getFileStream() //
+			.map(this::readLines) //
+			.filter(Objects::nonNull) //
+			.forEach(lines -> {
+				final Path sourceFilePath = Paths.get(lines.get(0));
+				final List<String> payload = lines.subList(1, lines.size());
+				final ByteBuffer digest = contentCacheSize > 0 ? ContentDigest.of(payload) : null;
+				final int[] cachedIds = digest != null ? payloadIds.get(digest) : null;
+				if (cachedIds != null) {
+					deduplicatedFileCounter++;
+					unboundList.addFile(lines.get(0), cachedIds);
+					featureIndex.addFile(lines.get(0), payload, expressionVariables);
+					return;
 				}
-			}).filter(pc -> pc.getDnf() != null).collect(Collectors.toList());
+				final int[] ids = payload.stream() //
+					.filter(expr -> !expr.isEmpty()).distinct() //
+					.mapToInt(expr -> expressionIds.computeIfAbsent(expr, e -> {
+						final Formula formula = parsedFormulas.get(e);
+						if (formula != null) {
+							expressionVariables.put(e, getVariableNames(formula));
+						}
+						final PresenceCondition pc = formula != null
+							? convert(formula, sourceFilePath, variableMap, nodeWriter)
+							: new PresenceCondition();
+						final int[] variables = formula != null //
+							? Formulas.getVariableStream(formula) //
+								.map(Variable::getName) //
+								.distinct() //
+								.mapToInt(name -> variableMap.getIndex(name).orElse(0)) //
+								.toArray()
+							: new int[0];
+						return pc.getDnf() != null
+							? unboundList.addExpression(e, variables, pc.getDnf().getClauses(),
+								pc.getNegatedDnf().getClauses())
+							: unboundList.addExpression(e, variables, null, null);
+					})) //
+					.filter(id -> unboundList.getDnf(id) != null) //
+					.toArray();
+				if (digest != null) {
+					payloadIds.put(digest, ids);
+				}
+				unboundList.addFile(lines.get(0), ids);
+				featureIndex.addFile(lines.get(0), payload, expressionVariables);
+			});
+		featureIndex.trim();
+		logDeduplicatedFiles();
+		return unboundList;
+	}
 
-		final PresenceConditionList presenceConditionList = new PresenceConditionList(convertedPCs, modelFormula);
-		presenceConditionList.setPCNames(new ArrayList<>(pcNames));
+	public PresenceConditionList bind(UnboundPresenceConditionList unboundList, CNF fmFormula) {
+		final CNF formula;
+		final int[] mapping = new int[unboundList.getVariableNames().size() + 1];
+		if (fmFormula != null) {
+			formula = fmFormula;
+			setVariableNames(fmFormula.getVariableMap().getNames());
+			final VariableMap variableMap = fmFormula.getVariableMap();
+			for (int i = 1; i < mapping.length; i++) {
+				mapping[i] = variableMap.getIndex(unboundList.getVariableNames().get(i - 1)).orElse(0);
+			}
+		} else {
+			formula = new CNF(VariableMap.fromNames(unboundList.getVariableNames()));
+			setVariableNames(null);
+			for (int i = 1; i < mapping.length; i++) {
+				mapping[i] = i;
+			}
+		}
+		final VariableMap variableMap = formula.getVariableMap();
 
-		final Path dnfPCsFile = extractionPath.resolve("filtered_pcs.list");
-		try {
-			Files.write(dnfPCsFile, convertedDNFs, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
-				StandardOpenOption.TRUNCATE_EXISTING);
-		} catch (final IOException e) {
-			Logger.logError(e);
+		final NodeWriter nodeWriter = new NodeWriter();
+		nodeWriter.setSymbols(ShortSymbols.INSTANCE);
+		dnfWriter = null;
+
+		final Collection<String> pcNameSet = new LinkedHashSet<>();
+		final CNF[] dnfs = new CNF[unboundList.getExpressionCount()];
+		final CNF[] negatedDnfs = new CNF[dnfs.length];
+		for (int id = 0; id < dnfs.length; id++) {
+			final int[] variables = unboundList.getExpressionVariables(id);
+			if (Arrays.stream(variables).allMatch(variable -> mapping[variable] != 0)) {
+				for (final int variable : variables) {
+					pcNameSet.add(unboundList.getVariableNames().get(variable - 1));
+				}
+				if (unboundList.getDnf(id) != null) {
+					dnfs[id] = new CNF(variableMap, remap(unboundList.getDnf(id), mapping));
+					negatedDnfs[id] = new CNF(variableMap, remap(unboundList.getNegatedDnf(id), mapping));
+				}
+			} else {
+				final Formula reboundFormula = parse(unboundList.getExpression(id), pcNameSet, formulaCache);
+				if (reboundFormula != null) {
+					final PresenceCondition pc = convert(reboundFormula, Paths.get(""), variableMap, nodeWriter);
+					dnfs[id] = pc.getDnf();
+					negatedDnfs[id] = pc.getNegatedDnf();
+				}
+			}
 		}
+
+		final List<PresenceCondition> boundPCs = new ArrayList<>();
+		for (int i = 0; i < unboundList.getFileCount(); i++) {
+			final Path sourceFilePath = Paths.get(unboundList.getFilePath(i));
+			for (final int id : unboundList.getFileExpressions(i)) {
+				if (dnfs[id] != null) {
+					boundPCs.add(new PresenceCondition(sourceFilePath, dnfs[id], negatedDnfs[id]));
+				}
+			}
+		}
+
+		final PresenceConditionList presenceConditionList = new PresenceConditionList(boundPCs, formula);
+		presenceConditionList.setPCNames(new ArrayList<>(pcNameSet));
 		return presenceConditionList;
 	}
 
-	private LiteralList getClause(Expression clauseExpression, VariableMap mapping) {
+	public Map<String, Formula> getFormulaCache() {
+		return formulaCache;
+	}
+
+	public void setFormulaCache(Map<String, Formula> formulaCache) {
+		this.formulaCache = formulaCache;
+	}
+
+	public Path getFilteredPCsFile() {
+		return filteredPCsFile;
+	}
+
+	public void setFilteredPCsFile(Path filteredPCsFile) {
+		this.filteredPCsFile = filteredPCsFile;
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	public int getContentCacheSize() {
+		return contentCacheSize;
+	}
+
+	public void setContentCacheSize(int contentCacheSize) {
+		this.contentCacheSize = contentCacheSize;
+	}
+
+	public FeatureIndex getFeatureIndex() {
+		return featureIndex;
+	}
+
+	public CNF getModelFormula() {
+		return modelFormula;
+	}
+
+	public ArrayList<String> getPCNames() {
+		return pcNames;
+	}
+
+	public long getDeduplicatedFileCount() {
+		return deduplicatedFileCounter;
+	}
+
+	private <V> Map<ByteBuffer, V> createContentCache() {
+		return new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ByteBuffer, V> eldest) {
+				return size() > contentCacheSize;
+			}
+		};
+	}
+
+	private void logDeduplicatedFiles() {
+		if (deduplicatedFileCounter > 0) {
+			Logger.logInfo("Reused conversion results for " + deduplicatedFileCounter + " duplicate files");
+		}
+	}
+
+	private List<String> readLines(Path p) {
+		try (BufferedReader reader = Compression.newBufferedReader(p)) {
+			final List<String> lines = new ArrayList<>();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(line);
+			}
+			return lines;
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	private HashMap<String, Formula> parseAll(FileProvider fileProvider, Collection<String> pcNameSet,
+		Map<String, Formula> cache) {
+		final HashMap<String, Formula> parsedFormulas = new HashMap<>();
+		final HashSet<ByteBuffer> payloads = new HashSet<>();
+		fileProvider.getFileStream() //
+			.map(this::readLines) //
+			.filter(Objects::nonNull) //
+			.map(lines -> lines.subList(1, lines.size())) //
+			.filter(payload -> payloads.add(ContentDigest.of(payload))) //
+			.flatMap(List::stream) //
+			.filter(expr -> !expr.isEmpty()) //
+			.forEach(expr -> {
+				if (!parsedFormulas.containsKey(expr)) {
+					parsedFormulas.put(expr, parse(expr, pcNameSet, cache));
+				}
+			});
+		return parsedFormulas;
+	}
+
+	private Formula parse(String expr, Collection<String> pcNameSet) {
+		return parse(expr, pcNameSet, formulaCache);
+	}
+
+	private void setVariableNames(Collection<String> variableNames) {
+		nodeReader.setVariableNames(variableNames);
+		filterVariables = variableNames != null;
+	}
+
+	private Formula parse(String expr, Collection<String> pcNameSet, Map<String, Formula> cache) {
+		final Map<String, Formula> parseCache = filterVariables ? cache : null;
+		Formula formula;
+		if ((parseCache != null) && parseCache.containsKey(expr)) {
+			formula = parseCache.get(expr);
+		} else {
+			formula = nodeReader.read(expr).get();
+			if (formula != null) {
+				formula = NormalForms.simplifyForNF(formula);
+			}
+			if (parseCache != null) {
+				parseCache.put(expr, formula);
+			}
+		}
+		if (formula == null) {
+			return null;
+		} else {
+			Formulas.getVariableStream(formula) //
+				.map(Variable::getName) //
+				.forEach(pcNameSet::add);
+			return formula;
+		}
+	}
+
+	private static String[] getVariableNames(Formula formula) {
+		return Formulas.getVariableStream(formula) //
+			.map(Variable::getName) //
+			.distinct() //
+			.toArray(String[]::new);
+	}
+
+	private ClauseList remap(ClauseList clauses, int[] mapping) {
+		final ClauseList remappedClauses = new ClauseList(clauses.size());
+		for (final LiteralList clause : clauses) {
+			final int[] literals = clause.getLiterals();
+			final int[] remappedLiterals = new int[literals.length];
+			for (int i = 0; i < literals.length; i++) {
+				final int literal = literals[i];
+				final int variable = mapping[Math.abs(literal)];
+				remappedLiterals[i] = literal > 0 ? variable : -variable;
+			}
+			remappedClauses.add(new LiteralList(remappedLiterals, Order.NATURAL));
+		}
+		return remappedClauses;
+	}
+
+	private PresenceCondition convert(Formula formula, Path sourceFilePath, VariableMap variableMap,
+		NodeWriter nodeWriter) {
+		final CNF dnf;
+		final CNF negatedDnf;
+		if (formula instanceof Literal) {
+			writeDNF(nodeWriter.write(formula));
+			final LiteralList clause = getClause(formula, variableMap);
+			if (clause != null) {
+				final ClauseList clauses = new ClauseList();
+				clauses.add(clause);
+				dnf = new CNF(variableMap, clauses);
+				negatedDnf = new CNF(variableMap, clauses.negate());
+			} else {
+				dnf = null;
+				negatedDnf = null;
+			}
+		} else {
+			dnf = Formulas.toDNF(formula).map(f -> {
+				writeDNF(nodeWriter.write(f));
+				final ClauseList clauses = new ClauseList();
+				f.getChildren().stream() //
+					.map(exp -> getClause(exp, variableMap)) //
+					.filter(Objects::nonNull) //
+					.forEach(clauses::add);
+				return new CNF(variableMap, clauses);
+			}).orElse((CNF) null);
+			negatedDnf = Formulas.toCNF(formula).map(f -> {
+				final ClauseList cnfClauses = new ClauseList();
+				f.getChildren().stream() //
+					.map(exp -> getClause(exp, variableMap)) //
+					.filter(Objects::nonNull) //
+					.forEach(cnfClauses::add);
+				return new CNF(variableMap, cnfClauses.negate());
+			}).orElse((CNF) null);
+		}
+		if ((negatedDnf == null) || negatedDnf.getClauses().isEmpty() || (negatedDnf.getClauses().get(0)
+			.size() == 0)
+			|| (dnf == null) || dnf.getClauses().isEmpty() || (dnf.getClauses().get(0).size() == 0)) {
+			return new PresenceCondition();
+		} else {
+			return new PresenceCondition(sourceFilePath, dnf, negatedDnf);
+		}
+	}
+
+	private void writeDNF(String dnf) {
+		if (dnfWriter != null) {
+			try {
+				dnfWriter.write(dnf);
+				dnfWriter.newLine();
+			} catch (final IOException e) {
+				Logger.logError(e);
+				closeDNFWriter();
+			}
+		}
+	}
+
+	private void closeDNFWriter() {
+		if (dnfWriter != null) {
+			try {
+				dnfWriter.close();
+			} catch (final IOException e) {
+				Logger.logError(e);
+			}
+			dnfWriter = null;
+		}
+	}
+
+	private LiteralList getClause(Expression clauseExpression, VariableMap variableMap) {
 		if (clauseExpression instanceof Literal) {
-			final Literal literal = (Literal) clauseExpression;
-			final int variable = mapping.getIndex(literal.getName())
-				.orElseThrow(() -> new RuntimeException(literal.getName()));
-			return new LiteralList(new int[] { literal.isPositive() ? variable : -variable }, Order.NATURAL, false);
+			return new LiteralList(new int[] { getLiteral((Literal) clauseExpression, variableMap) }, Order.NATURAL,
+				false);
 		} else {
 			final List<? extends Expression> clauseChildren = clauseExpression.getChildren();
-			if (clauseChildren.stream().anyMatch(literal -> literal == Literal.True)) {
-				return null;
-			} else {
-				final int[] literals = clauseChildren.stream().filter(literal -> literal != Literal.False)
-					.mapToInt(literal -> {
-						final int variable = mapping.getIndex(literal.getName())
-							.orElseThrow(() -> new RuntimeException(literal.getName()));
-						return ((Literal) literal).isPositive() ? variable : -variable;
-					}).toArray();
-				return new LiteralList(literals, Order.NATURAL).clean().get();
+			for (final Expression literal : clauseChildren) {
+				if (literal == Literal.True) {
+					return null;
+				}
+			}
+			final int[] literals = new int[clauseChildren.size()];
+			int literalCount = 0;
+			for (final Expression literal : clauseChildren) {
+				if (literal != Literal.False) {
+					literals[literalCount++] = getLiteral((Literal) literal, variableMap);
+				}
 			}
+			return new LiteralList(literalCount == literals.length ? literals : Arrays.copyOf(literals, literalCount),
+				Order.NATURAL).clean().get();
 		}
 	}
 
+	private static int getLiteral(Literal literal, VariableMap variableMap) {
+		final int variable = variableMap.getIndex(literal.getName())
+			.orElseThrow(() -> new RuntimeException(literal.getName()));
+		return literal.isPositive() ? variable : -variable;
+	}
+
 }
@@ -25,7 +25,6 @@ package org.spldev.pc_extraction.convert;
 import java.io.*;
 import java.util.*;
 
-import org.spldev.analysis.sat4j.twise.*;
 import org.spldev.clauses.*;
 
 public final class Expressions implements Serializable {
@@ -34,6 +33,7 @@ public final class Expressions implements Serializable {
 
 	private CNF cnf;
 	private final List<List<ClauseList>> expressions = new ArrayList<>(1);
+	private ArrayList<String> groupKeys;
 
 	public CNF getCnf() {
 		return cnf;
@@ -45,17 +45,32 @@ public final class Expressions implements Serializable {
 
 	public void setExpressions(LiteralList literals) {
 		expressions.clear();
-		expressions.addAll(TWiseCombiner.convertLiterals(literals));
+		groupKeys = null;
+		expressions.add(new LiteralExpressionList(literals));
 	}
 
 	public void setExpressions(List<ClauseList> expressions) {
 		this.expressions.clear();
+		groupKeys = null;
 		this.expressions.add(expressions);
 	}
 
 	public void setGroupedExpressions(List<List<ClauseList>> expressions) {
 		this.expressions.clear();
 		this.expressions.addAll(expressions);
+		groupKeys = null;
+	}
+
+	public void setGroupedExpressions(List<List<ClauseList>> expressions, List<String> groupKeys) {
+		if (expressions.size() != groupKeys.size()) {
+			throw new IllegalArgumentException("Number of groups and keys differ");
+		}
+		setGroupedExpressions(expressions);
+		this.groupKeys = new ArrayList<>(groupKeys);
+	}
+
+	public List<String> getGroupKeys() {
+		return groupKeys;
 	}
 
 	public List<List<ClauseList>> getExpressions() {
@@ -0,0 +1,326 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.*;
+
+public class FeatureIndex implements Serializable {
+
+	private static final long serialVersionUID = 2817410928650337925L;
+
+	public static class Occurrence {
+		private final String filePath;
+		private final int[] lineRanges;
+
+		public Occurrence(String filePath, int[] lineRanges) {
+			this.filePath = filePath;
+			this.lineRanges = lineRanges;
+		}
+
+		public String getFilePath() {
+			return filePath;
+		}
+
+		public int getRangeCount() {
+			return lineRanges.length >> 1;
+		}
+
+		public int getBeginLine(int index) {
+			return lineRanges[index << 1];
+		}
+
+		public int getEndLine(int index) {
+			return lineRanges[(index << 1) + 1];
+		}
+
+		public boolean containsLine(int line) {
+			for (int i = 0; i < lineRanges.length; i += 2) {
+				if (line < lineRanges[i]) {
+					return false;
+				} else if (line <= lineRanges[i + 1]) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder sb = new StringBuilder(filePath);
+			for (int i = 0; i < lineRanges.length; i += 2) {
+				sb.append(i == 0 ? ": " : ", ").append(lineRanges[i]).append('-').append(lineRanges[i + 1]);
+			}
+			return sb.toString();
+		}
+	}
+
+	private final ArrayList<String> filePaths = new ArrayList<>();
+	private final HashMap<String, Integer> variableIds = new HashMap<>();
+	private final ArrayList<String> variableNames = new ArrayList<>();
+
+	private byte[][] postings = new byte[16][];
+	private int[] postingLengths = new int[16];
+	private int[] lastFiles = new int[16];
+
+	void addFile(String filePath, List<String> lineExpressions, Map<String, String[]> expressionVariables) {
+		final int fileId = filePaths.size();
+		filePaths.add(filePath);
+
+		final LinkedHashMap<Integer, int[]> fileRanges = new LinkedHashMap<>();
+		int line = 0;
+		for (final String expression : lineExpressions) {
+			line++;
+			final String[] variables = expression.isEmpty() ? null : expressionVariables.get(expression);
+			if (variables == null) {
+				continue;
+			}
+			for (final String variable : variables) {
+				final int id = getOrCreateId(variable);
+				int[] ranges = fileRanges.get(id);
+				if (ranges == null) {
+					ranges = new int[5];
+					fileRanges.put(id, ranges);
+				}
+				final int end = ranges[0] << 1;
+				if ((end > 0) && (ranges[end] >= (line - 1))) {
+					ranges[end] = line;
+				} else {
+					if ((end + 3) > ranges.length) {
+						ranges = Arrays.copyOf(ranges, ranges.length << 1);
+						fileRanges.put(id, ranges);
+					}
+					ranges[end + 1] = line;
+					ranges[end + 2] = line;
+					ranges[0]++;
+				}
+			}
+		}
+
+		for (final Map.Entry<Integer, int[]> entry : fileRanges.entrySet()) {
+			final int[] ranges = entry.getValue();
+			writeOccurrence(entry.getKey(), fileId, ranges, 1, ranges[0]);
+		}
+	}
+
+	public void update(FeatureIndex changedFiles, Collection<String> removedFilePaths) {
+		final HashSet<String> removedFiles = new HashSet<>(removedFilePaths);
+		if (changedFiles != null) {
+			removedFiles.addAll(changedFiles.filePaths);
+		}
+		removeFiles(removedFiles);
+		if (changedFiles != null) {
+			final List<LinkedHashMap<Integer, int[]>> fileOccurrences = new ArrayList<>();
+			for (int i = 0; i < changedFiles.filePaths.size(); i++) {
+				fileOccurrences.add(new LinkedHashMap<>());
+			}
+			for (int changedId = 0; changedId < changedFiles.variableNames.size(); changedId++) {
+				final int id = getOrCreateId(changedFiles.variableNames.get(changedId));
+				changedFiles.decode(changedId, (lineRanges, changedFileId) -> fileOccurrences.get(changedFileId)
+					.put(id, lineRanges));
+			}
+			for (int i = 0; i < fileOccurrences.size(); i++) {
+				final int fileId = filePaths.size();
+				filePaths.add(changedFiles.filePaths.get(i));
+				for (final Map.Entry<Integer, int[]> entry : fileOccurrences.get(i).entrySet()) {
+					final int[] lineRanges = entry.getValue();
+					writeOccurrence(entry.getKey(), fileId, lineRanges, 0, lineRanges.length >> 1);
+				}
+			}
+		}
+		trim();
+	}
+
+	private void removeFiles(Set<String> removedFiles) {
+		final int[] fileIds = new int[filePaths.size()];
+		final ArrayList<String> remainingFiles = new ArrayList<>(filePaths.size());
+		for (int fileId = 0; fileId < filePaths.size(); fileId++) {
+			final String filePath = filePaths.get(fileId);
+			if (removedFiles.contains(filePath)) {
+				fileIds[fileId] = -1;
+			} else {
+				fileIds[fileId] = remainingFiles.size();
+				remainingFiles.add(filePath);
+			}
+		}
+		if (remainingFiles.size() == filePaths.size()) {
+			return;
+		}
+		for (int id = 0; id < variableNames.size(); id++) {
+			final List<int[]> occurrences = new ArrayList<>();
+			decode(id, (lineRanges, fileId) -> {
+				if (fileIds[fileId] >= 0) {
+					occurrences.add(new int[] { fileIds[fileId] });
+					occurrences.add(lineRanges);
+				}
+			});
+			postings[id] = new byte[8];
+			postingLengths[id] = 0;
+			lastFiles[id] = 0;
+			for (int i = 0; i < occurrences.size(); i += 2) {
+				final int[] lineRanges = occurrences.get(i + 1);
+				writeOccurrence(id, occurrences.get(i)[0], lineRanges, 0, lineRanges.length >> 1);
+			}
+		}
+		filePaths.clear();
+		filePaths.addAll(remainingFiles);
+	}
+
+	void trim() {
+		for (int id = 0; id < variableNames.size(); id++) {
+			postings[id] = Arrays.copyOf(postings[id], postingLengths[id]);
+		}
+	}
+
+	public int getFileCount() {
+		return filePaths.size();
+	}
+
+	public String getFilePath(int fileId) {
+		return filePaths.get(fileId);
+	}
+
+	public long getPostingSize() {
+		long size = 0;
+		for (int id = 0; id < variableNames.size(); id++) {
+			size += postingLengths[id];
+		}
+		return size;
+	}
+
+	public List<String> getVariableNames() {
+		return Collections.unmodifiableList(variableNames);
+	}
+
+	public boolean contains(String variable) {
+		return variableIds.containsKey(variable);
+	}
+
+	public List<String> getFiles(String variable) {
+		final Integer id = variableIds.get(variable);
+		if (id == null) {
+			return Collections.emptyList();
+		}
+		final byte[] posting = postings[id];
+		final int length = postingLengths[id];
+		final List<String> files = new ArrayList<>();
+		final int[] position = new int[1];
+		int fileId = 0;
+		while (position[0] < length) {
+			fileId += readVarInt(posting, position);
+			files.add(filePaths.get(fileId));
+			final int count = readVarInt(posting, position);
+			for (int i = 0; i < (count << 1); i++) {
+				readVarInt(posting, position);
+			}
+		}
+		return files;
+	}
+
+	public List<Occurrence> query(String variable) {
+		final Integer id = variableIds.get(variable);
+		if (id == null) {
+			return Collections.emptyList();
+		}
+		final List<Occurrence> occurrences = new ArrayList<>();
+		decode(id, (lineRanges, fileId) -> occurrences.add(new Occurrence(filePaths.get(fileId), lineRanges)));
+		return occurrences;
+	}
+
+	private void decode(int id, ObjIntConsumer<int[]> consumer) {
+		final byte[] posting = postings[id];
+		final int length = postingLengths[id];
+		final int[] position = new int[1];
+		int fileId = 0;
+		while (position[0] < length) {
+			fileId += readVarInt(posting, position);
+			final int[] lineRanges = new int[readVarInt(posting, position) << 1];
+			int previousEnd = 0;
+			for (int i = 0; i < lineRanges.length; i += 2) {
+				lineRanges[i] = previousEnd + readVarInt(posting, position);
+				lineRanges[i + 1] = lineRanges[i] + readVarInt(posting, position);
+				previousEnd = lineRanges[i + 1];
+			}
+			consumer.accept(lineRanges, fileId);
+		}
+	}
+
+	private int getOrCreateId(String variable) {
+		final Integer id = variableIds.get(variable);
+		if (id != null) {
+			return id;
+		}
+		final int newId = variableNames.size();
+		variableIds.put(variable, newId);
+		variableNames.add(variable);
+		if (newId == postings.length) {
+			final int newLength = postings.length << 1;
+			postings = Arrays.copyOf(postings, newLength);
+			postingLengths = Arrays.copyOf(postingLengths, newLength);
+			lastFiles = Arrays.copyOf(lastFiles, newLength);
+		}
+		postings[newId] = new byte[8];
+		return newId;
+	}
+
+	private void writeOccurrence(int id, int fileId, int[] lineRanges, int offset, int rangeCount) {
+		writeVarInt(id, fileId - lastFiles[id]);
+		writeVarInt(id, rangeCount);
+		int previousEnd = 0;
+		for (int i = offset; i < (offset + (rangeCount << 1)); i += 2) {
+			writeVarInt(id, lineRanges[i] - previousEnd);
+			writeVarInt(id, lineRanges[i + 1] - lineRanges[i]);
+			previousEnd = lineRanges[i + 1];
+		}
+		lastFiles[id] = fileId;
+	}
+
+	private void writeVarInt(int id, int value) {
+		byte[] posting = postings[id];
+		int length = postingLengths[id];
+		if ((length + 5) > posting.length) {
+			posting = Arrays.copyOf(posting, Math.max(posting.length << 1, length + 5));
+			postings[id] = posting;
+		}
+		while ((value & ~0x7F) != 0) {
+			posting[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		posting[length++] = (byte) value;
+		postingLengths[id] = length;
+	}
+
+	private static int readVarInt(byte[] posting, int[] position) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = posting[position[0]++];
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+}
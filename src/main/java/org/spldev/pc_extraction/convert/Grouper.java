@@ -22,25 +22,78 @@
  */
 package org.spldev.pc_extraction.convert;
 
+import java.nio.file.*;
 import java.util.*;
+import java.util.Map.*;
 import java.util.function.*;
 import java.util.stream.*;
 
-import org.spldev.analysis.sat4j.twise.*;
 import org.spldev.clauses.*;
 import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.util.logging.*;
 
 public class Grouper {
 
 	public enum Grouping {
-		PC_ALL_FM, PC_ALL_FM_FM, PC_FOLDER_FM, PC_FILE_FM, PC_VARS_FM, PC_ALL, PC_FOLDER, PC_FILE, PC_VARS, FM_ONLY
+		PC_ALL_FM, PC_ALL_FM_FM, PC_FOLDER_FM, PC_FILE_FM, PC_VARS_FM, PC_ALL, PC_FOLDER, PC_FILE, PC_VARS, FM_ONLY,
+		PC_BALANCED_FM, PC_BALANCED
 	}
 
-	private final Object idObject = new Object();
+	public enum GroupWeight {
+		EXPRESSIONS, CLAUSES
+	}
+
+	private static class Group {
+		private final List<ClauseList> expressions = new ArrayList<>();
+		private long weight;
+	}
 
-	public Function<PresenceCondition, ?> allGrouper = pc -> idObject;
+	private static class DirectoryNode {
+		private final TreeMap<String, DirectoryNode> directories = new TreeMap<>();
+		private final TreeMap<String, List<ClauseList>> files = new TreeMap<>();
+		private long weight;
+	}
+
+	private boolean useBDD = false;
+	private GroupWeight groupWeight = GroupWeight.EXPRESSIONS;
+	private long targetGroupSize = 0;
+	private int groupCount = Runtime.getRuntime().availableProcessors();
+
+	public Function<PresenceCondition, ?> allGrouper = pc -> "";
 	public Function<PresenceCondition, ?> fileGrouper = PresenceCondition::getFilePath;
-	public Function<PresenceCondition, ?> folderGrouper = pc -> pc.getFilePath().getParent();
+	public Function<PresenceCondition, ?> folderGrouper = pc -> Objects.toString(pc.getFilePath().getParent(), "");
+
+	public boolean isUseBDD() {
+		return useBDD;
+	}
+
+	public void setUseBDD(boolean useBDD) {
+		this.useBDD = useBDD;
+	}
+
+	public GroupWeight getGroupWeight() {
+		return groupWeight;
+	}
+
+	public void setGroupWeight(GroupWeight groupWeight) {
+		this.groupWeight = groupWeight;
+	}
+
+	public long getTargetGroupSize() {
+		return targetGroupSize;
+	}
+
+	public void setTargetGroupSize(long targetGroupSize) {
+		this.targetGroupSize = targetGroupSize;
+	}
+
+	public int getGroupCount() {
+		return groupCount;
+	}
+
+	public void setGroupCount(int groupCount) {
+		this.groupCount = groupCount;
+	}
 
 	public Expressions group(PresenceConditionList pcList, Grouping grouping) throws Exception {
 		switch (grouping) {
@@ -60,6 +113,9 @@ public class Grouper {
 			return groupVars2(pcList);
 		case PC_VARS_FM:
 			return groupPCFMVars(pcList);
+		case PC_BALANCED_FM:
+		case PC_BALANCED:
+			return groupBalanced(pcList);
 		default:
 			return null;
 		}
@@ -67,21 +123,247 @@ public class Grouper {
 
 	public Expressions group(PresenceConditionList pcList, Function<PresenceCondition, ?> grouper) {
 		final Map<?, List<PresenceCondition>> groupedPCs = pcList.stream().collect(Collectors.groupingBy(grouper));
+		final BDD bdd = createBDD(pcList.getFormula());
+		final List<List<ClauseList>> groups = new ArrayList<>(groupedPCs.size());
+		final List<String> groupKeys = new ArrayList<>(groupedPCs.size());
+		for (final Entry<?, List<PresenceCondition>> entry : groupedPCs.entrySet()) {
+			groupKeys.add(String.valueOf(entry.getKey()));
+			groups.add(createExpressions(entry.getValue(), bdd));
+		}
 		final Expressions expressions = new Expressions();
-		groupedPCs.values().stream().map(this::createExpressions).forEach(expressions.getExpressions()::add);
+		expressions.setGroupedExpressions(groups, groupKeys);
+		expressions.setCnf(pcList.getFormula());
+		return expressions;
+	}
+
+	public boolean update(Expressions expressions, PresenceConditionList pcList, Grouping grouping,
+		Collection<PresenceCondition> changedPCs) {
+		final Function<PresenceCondition, ?> grouper = getGrouper(grouping);
+		if ((grouper == null) || (expressions.getGroupKeys() == null)) {
+			return false;
+		}
+		final Function<PresenceCondition, String> keyFunction = pc -> String.valueOf(grouper.apply(pc));
+		final Set<String> affectedKeys = changedPCs.stream().map(keyFunction).collect(Collectors.toSet());
+		if (affectedKeys.isEmpty()) {
+			return true;
+		}
+		final Map<String, List<PresenceCondition>> affectedPCs = pcList.stream() //
+			.filter(pc -> affectedKeys.contains(keyFunction.apply(pc))) //
+			.collect(Collectors.groupingBy(keyFunction));
+
+		final LinkedHashMap<String, List<ClauseList>> groups = new LinkedHashMap<>();
+		final List<String> groupKeys = expressions.getGroupKeys();
+		for (int i = 0; i < groupKeys.size(); i++) {
+			groups.put(groupKeys.get(i), expressions.getExpressions().get(i));
+		}
+		final BDD bdd = createBDD(pcList.getFormula());
+		for (final String key : affectedKeys) {
+			final List<PresenceCondition> pcs = affectedPCs.get(key);
+			if (pcs == null) {
+				groups.remove(key);
+			} else {
+				groups.put(key, createExpressions(pcs, bdd));
+			}
+		}
+		expressions.setGroupedExpressions(new ArrayList<>(groups.values()), new ArrayList<>(groups.keySet()));
 		expressions.setCnf(pcList.getFormula());
+		return true;
+	}
+
+	public Expressions group(PresenceConditionReader reader, Grouping grouping) {
+		switch (grouping) {
+		case PC_ALL_FM:
+		case PC_ALL:
+			return group(reader, allGrouper);
+		case PC_FOLDER_FM:
+		case PC_FOLDER:
+			return group(reader, folderGrouper);
+		case PC_FILE_FM:
+		case PC_FILE:
+			return group(reader, fileGrouper);
+		case PC_ALL_FM_FM: {
+			final LinkedHashSet<ClauseList> pcs = new LinkedHashSet<>();
+			reader.forEachRemaining(pc -> createExpression(pc).forEach(pcs::add));
+			return groupVars2(pcs, reader.getFormula());
+		}
+		case FM_ONLY:
+		case PC_VARS:
+		case PC_VARS_FM: {
+			final PresenceConditionList pcList = new PresenceConditionList(Collections.emptyList(),
+				reader.getFormula());
+			pcList.setPCNames(reader.getPCNames());
+			return grouping == Grouping.PC_VARS_FM ? groupPCFMVars(pcList) : groupVars(pcList);
+		}
+		case PC_BALANCED_FM:
+		case PC_BALANCED: {
+			final LinkedHashMap<Path, LinkedHashSet<ClauseList>> fileExpressions = new LinkedHashMap<>();
+			reader.forEachRemaining(pc -> addFileExpressions(fileExpressions, pc));
+			return groupBalanced(fileExpressions, reader.getFormula());
+		}
+		default:
+			return null;
+		}
+	}
+
+	public Expressions group(PresenceConditionReader reader, Function<PresenceCondition, ?> grouper) {
+		final Map<Object, LinkedHashSet<ClauseList>> groupedExpressions = new HashMap<>();
+		reader.forEachRemaining(pc -> {
+			final LinkedHashSet<ClauseList> exps = groupedExpressions.computeIfAbsent(grouper.apply(pc),
+				key -> new LinkedHashSet<>());
+			createExpression(pc).peek(Collections::sort).forEach(exps::add);
+		});
+		final CNF formula = reader.getFormula();
+		final BDD bdd = createBDD(formula);
+		final List<List<ClauseList>> groups = new ArrayList<>(groupedExpressions.size());
+		final List<String> groupKeys = new ArrayList<>(groupedExpressions.size());
+		for (final Entry<Object, LinkedHashSet<ClauseList>> entry : groupedExpressions.entrySet()) {
+			final List<ClauseList> sortedExps = removeEquivalent(new ArrayList<>(entry.getValue()), bdd);
+			sort(sortedExps);
+			groupKeys.add(String.valueOf(entry.getKey()));
+			groups.add(sortedExps);
+		}
+		final Expressions expressions = new Expressions();
+		expressions.setGroupedExpressions(groups, groupKeys);
+		expressions.setCnf(formula);
 		return expressions;
 	}
 
+	public Expressions groupBalanced(PresenceConditionList pcList) {
+		final LinkedHashMap<Path, LinkedHashSet<ClauseList>> fileExpressions = new LinkedHashMap<>();
+		pcList.forEach(pc -> addFileExpressions(fileExpressions, pc));
+		return groupBalanced(fileExpressions, pcList.getFormula());
+	}
+
+	private void addFileExpressions(Map<Path, LinkedHashSet<ClauseList>> fileExpressions, PresenceCondition pc) {
+		if ((pc != null) && (pc.getDnf() != null)) {
+			final LinkedHashSet<ClauseList> exps = fileExpressions.computeIfAbsent(pc.getFilePath(),
+				key -> new LinkedHashSet<>());
+			createExpression(pc).peek(Collections::sort).forEach(exps::add);
+		}
+	}
+
+	private Expressions groupBalanced(Map<Path, LinkedHashSet<ClauseList>> fileExpressions, CNF formula) {
+		final DirectoryNode root = new DirectoryNode();
+		for (final Entry<Path, LinkedHashSet<ClauseList>> entry : fileExpressions.entrySet()) {
+			final List<ClauseList> exps = new ArrayList<>(entry.getValue());
+			final long weight = getWeight(exps);
+			DirectoryNode node = root;
+			node.weight += weight;
+			final Path directory = entry.getKey().getParent();
+			if (directory != null) {
+				for (final Path name : directory) {
+					node = node.directories.computeIfAbsent(name.toString(), key -> new DirectoryNode());
+					node.weight += weight;
+				}
+			}
+			node.files.put(String.valueOf(entry.getKey().getFileName()), exps);
+		}
+
+		final long count = Math.max(1, groupCount);
+		final long target = targetGroupSize > 0 ? targetGroupSize : Math.max(1, (root.weight + count - 1) / count);
+		final List<Group> groups = new ArrayList<>();
+		partition(root, target, groups);
+
+		final BDD bdd = createBDD(formula);
+		final Expressions expressions = new Expressions();
+		final long[] weights = new long[groups.size()];
+		for (int i = 0; i < weights.length; i++) {
+			final List<ClauseList> exps = removeEquivalent(groups.get(i).expressions.stream() //
+				.distinct() //
+				.collect(Collectors.toList()), bdd);
+			sort(exps);
+			weights[i] = getWeight(exps);
+			expressions.getExpressions().add(exps);
+		}
+		expressions.setCnf(formula);
+		logGroupWeights(weights, target);
+		return expressions;
+	}
+
+	private void partition(DirectoryNode node, long target, List<Group> groups) {
+		if (node.weight <= target) {
+			final Group group = new Group();
+			collect(node, group);
+			group.weight = node.weight;
+			addGroup(groups, group, target);
+		} else {
+			for (final DirectoryNode child : node.directories.values()) {
+				partition(child, target, groups);
+			}
+			for (final List<ClauseList> exps : node.files.values()) {
+				Group group = new Group();
+				for (final ClauseList exp : exps) {
+					final long weight = getWeight(exp);
+					if (((group.weight + weight) > target) && !group.expressions.isEmpty()) {
+						addGroup(groups, group, target);
+						group = new Group();
+					}
+					group.expressions.add(exp);
+					group.weight += weight;
+				}
+				addGroup(groups, group, target);
+			}
+		}
+	}
+
+	private void collect(DirectoryNode node, Group group) {
+		node.files.values().forEach(group.expressions::addAll);
+		for (final DirectoryNode child : node.directories.values()) {
+			collect(child, group);
+		}
+	}
+
+	private void addGroup(List<Group> groups, Group group, long target) {
+		if (group.expressions.isEmpty()) {
+			return;
+		}
+		final Group lastGroup = groups.isEmpty() ? null : groups.get(groups.size() - 1);
+		if ((lastGroup != null) && ((lastGroup.weight + group.weight) <= target)) {
+			lastGroup.expressions.addAll(group.expressions);
+			lastGroup.weight += group.weight;
+		} else {
+			groups.add(group);
+		}
+	}
+
+	private long getWeight(Collection<ClauseList> exps) {
+		long weight = 0;
+		for (final ClauseList exp : exps) {
+			weight += getWeight(exp);
+		}
+		return weight;
+	}
+
+	private long getWeight(ClauseList exp) {
+		return groupWeight == GroupWeight.CLAUSES ? exp.size() : 1;
+	}
+
+	private void logGroupWeights(long[] weights, long target) {
+		final String unit = groupWeight.toString().toLowerCase();
+		if (weights.length == 0) {
+			Logger.logInfo("Balanced grouping: 0 groups (target " + target + " " + unit + ")");
+			return;
+		}
+		Arrays.sort(weights);
+		final long total = Arrays.stream(weights).sum();
+		Logger.logInfo("Balanced grouping: " + weights.length + " groups (target " + target + " " + unit
+			+ "), min " + weights[0] + ", median " + weights[weights.length / 2] + ", max "
+			+ weights[weights.length - 1] + ", mean " + (total / weights.length));
+	}
+
 	public Expressions groupVars2(PresenceConditionList pcList) {
-		final VariableMap newVariables = pcList.getFormula().getVariableMap();
 		final LinkedHashSet<ClauseList> pcs = pcList.stream().flatMap(this::createExpression)
 			.collect(Collectors.toCollection(LinkedHashSet::new));
-		pcs.addAll(TWiseCombiner.convertLiterals(LiteralList.getLiterals(newVariables)).get(0));
+		return groupVars2(pcs, pcList.getFormula());
+	}
+
+	private Expressions groupVars2(LinkedHashSet<ClauseList> pcs, CNF formula) {
+		final VariableMap newVariables = formula.getVariableMap();
+		final List<ClauseList> exps = removeEquivalent(new ArrayList<>(pcs), createBDD(formula));
 
 		final Expressions expressions = new Expressions();
-		expressions.setExpressions(new ArrayList<>(pcs));
-		expressions.setCnf(pcList.getFormula());
+		expressions.setExpressions(new LiteralExpressionList(exps, LiteralList.getLiterals(newVariables)));
+		expressions.setCnf(formula);
 		return expressions;
 	}
 
@@ -103,17 +385,45 @@ public class Grouper {
 		return expressions;
 	}
 
-	private List<ClauseList> createExpressions(List<PresenceCondition> pcList) {
-		final List<ClauseList> exps = pcList.stream() //
+	private Function<PresenceCondition, ?> getGrouper(Grouping grouping) {
+		switch (grouping) {
+		case PC_ALL_FM:
+		case PC_ALL:
+			return allGrouper;
+		case PC_FOLDER_FM:
+		case PC_FOLDER:
+			return folderGrouper;
+		case PC_FILE_FM:
+		case PC_FILE:
+			return fileGrouper;
+		default:
+			return null;
+		}
+	}
+
+	private List<ClauseList> createExpressions(List<PresenceCondition> pcList, BDD bdd) {
+		final List<ClauseList> exps = removeEquivalent(pcList.stream() //
 			.flatMap(this::createExpression) //
 			.peek(Collections::sort) //
 			.distinct() //
-			.collect(Collectors.toList());
+			.collect(Collectors.toList()), bdd);
 
 		sort(exps);
 		return exps;
 	}
 
+	private BDD createBDD(CNF formula) {
+		return useBDD ? new BDD(formula.getVariableMap()) : null;
+	}
+
+	private List<ClauseList> removeEquivalent(List<ClauseList> exps, BDD bdd) {
+		if (bdd == null) {
+			return exps;
+		}
+		final HashSet<Integer> roots = new HashSet<>();
+		return exps.stream().filter(exp -> roots.add(bdd.fromDnf(exp))).collect(Collectors.toList());
+	}
+
 	private final Stream<ClauseList> createExpression(PresenceCondition pc) {
 		final Stream.Builder<ClauseList> streamBuilder = Stream.builder();
 		if ((pc != null) && (pc.getDnf() != null)) {
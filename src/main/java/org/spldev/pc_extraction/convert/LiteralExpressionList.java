@@ -0,0 +1,112 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+
+public class LiteralExpressionList extends AbstractList<ClauseList> implements RandomAccess, Serializable {
+
+	private static final long serialVersionUID = -6502374036478218551L;
+
+	private final List<ClauseList> head;
+	private final int[] runStarts;
+	private final int[] runOffsets;
+
+	public LiteralExpressionList(LiteralList literals) {
+		this(Collections.emptyList(), literals);
+	}
+
+	public LiteralExpressionList(List<ClauseList> head, LiteralList literals) {
+		this.head = new ArrayList<>(head);
+
+		final HashSet<Integer> headLiterals = new HashSet<>();
+		for (final ClauseList clauseList : head) {
+			if ((clauseList.size() == 1) && (clauseList.get(0).size() == 1)) {
+				headLiterals.add(clauseList.get(0).getLiterals()[0]);
+			}
+		}
+		final int[] literalArray = headLiterals.isEmpty() ? literals.getLiterals()
+			: Arrays.stream(literals.getLiterals()).filter(literal -> !headLiterals.contains(literal)).toArray();
+		int runCount = 0;
+		for (int i = 0; i < literalArray.length; i++) {
+			if ((i == 0) || !isSuccessor(literalArray[i - 1], literalArray[i])) {
+				runCount++;
+			}
+		}
+		runStarts = new int[runCount];
+		runOffsets = new int[runCount + 1];
+		int run = -1;
+		for (int i = 0; i < literalArray.length; i++) {
+			if ((i == 0) || !isSuccessor(literalArray[i - 1], literalArray[i])) {
+				run++;
+				runStarts[run] = literalArray[i];
+				runOffsets[run] = i;
+			}
+		}
+		runOffsets[runCount] = literalArray.length;
+	}
+
+	private static boolean isSuccessor(int literal, int nextLiteral) {
+		return (nextLiteral == (literal + 1)) && (nextLiteral != 0);
+	}
+
+	public int getLiteral(int index) {
+		final int literalIndex = index - head.size();
+		int run = Arrays.binarySearch(runOffsets, literalIndex);
+		if (run < 0) {
+			run = -run - 2;
+		}
+		return runStarts[run] + (literalIndex - runOffsets[run]);
+	}
+
+	public int getHeadSize() {
+		return head.size();
+	}
+
+	public int getRunCount() {
+		return runStarts.length;
+	}
+
+	@Override
+	public ClauseList get(int index) {
+		if ((index < 0) || (index >= size())) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+		if (index < head.size()) {
+			return head.get(index);
+		}
+		final ClauseList clauseList = new ClauseList(1);
+		clauseList.add(new LiteralList(new int[] { getLiteral(index) }, Order.NATURAL, false));
+		return clauseList;
+	}
+
+	@Override
+	public int size() {
+		return head.size() + runOffsets[runOffsets.length - 1];
+	}
+
+}
@@ -23,7 +23,6 @@
 package org.spldev.pc_extraction.convert;
 
 import java.io.*;
-import java.net.*;
 import java.nio.file.*;
 import java.util.*;
 
@@ -32,10 +31,13 @@ import org.spldev.clauses.LiteralList.*;
 
 public class PresenceCondition implements Serializable {
 
-	private static final long serialVersionUID = -6830211519154462391L;
+	private static final long serialVersionUID = 3152874610093871526L;
+
+	private static final Comparator<LiteralList> CLAUSE_COMPARATOR = (clause1, clause2) -> Arrays
+		.compare(clause1.getLiterals(), clause2.getLiterals());
 
 	private final CNF dnf, negatedDnf;
-	private final URI filePath;
+	private final String filePath;
 
 	public PresenceCondition() {
 		filePath = null;
@@ -44,17 +46,21 @@ public class PresenceCondition implements Serializable {
 	}
 
 	public PresenceCondition(Path filePath, CNF dnf, CNF negatedDnf) {
-		this.filePath = filePath.toUri();
+		this.filePath = filePath.toString();
 		this.dnf = dnf;
 		this.negatedDnf = negatedDnf;
 		dnf.getClauses().stream().forEach(c -> c.setOrder(Order.NATURAL));
-		Collections.sort(dnf.getClauses(), Comparator.comparing(LiteralList::toLiteralString));
+		Collections.sort(dnf.getClauses(), CLAUSE_COMPARATOR);
 	}
 
 	public Path getFilePath() {
 		return Paths.get(filePath);
 	}
 
+	String getFilePathString() {
+		return filePath;
+	}
+
 	public CNF getDnf() {
 		return dnf;
 	}
@@ -0,0 +1,62 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.nio.file.*;
+import java.util.*;
+
+public class PresenceConditionDelta {
+
+	private final LinkedHashMap<String, List<PresenceCondition>> files = new LinkedHashMap<>();
+
+	public void updateFile(Path filePath, List<PresenceCondition> pcs) {
+		files.put(filePath.toString(), new ArrayList<>(pcs));
+	}
+
+	public void removeFile(Path filePath) {
+		files.put(filePath.toString(), Collections.emptyList());
+	}
+
+	public boolean containsFile(Path filePath) {
+		return files.containsKey(filePath.toString());
+	}
+
+	public List<PresenceCondition> getPresenceConditions() {
+		final List<PresenceCondition> pcs = new ArrayList<>();
+		files.values().forEach(pcs::addAll);
+		return pcs;
+	}
+
+	public int getFileCount() {
+		return files.size();
+	}
+
+	public boolean isEmpty() {
+		return files.isEmpty();
+	}
+
+	boolean containsFile(String filePath) {
+		return files.containsKey(filePath);
+	}
+
+}
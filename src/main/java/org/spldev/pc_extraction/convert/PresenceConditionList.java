@@ -52,4 +52,20 @@ public class PresenceConditionList extends ArrayList<PresenceCondition> implemen
 		this.pcNames = pcNames;
 	}
 
+	public List<PresenceCondition> apply(PresenceConditionDelta delta) {
+		final List<PresenceCondition> retainedPCs = new ArrayList<>(size());
+		final List<PresenceCondition> removedPCs = new ArrayList<>();
+		for (final PresenceCondition pc : this) {
+			if (delta.containsFile(pc.getFilePathString())) {
+				removedPCs.add(pc);
+			} else {
+				retainedPCs.add(pc);
+			}
+		}
+		clear();
+		addAll(retainedPCs);
+		addAll(delta.getPresenceConditions());
+		return removedPCs;
+	}
+
 }
@@ -0,0 +1,132 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+import org.spldev.clauses.LiteralList.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.pc_extraction.util.*;
+
+public class PresenceConditionReader implements Iterator<PresenceCondition>, Closeable {
+
+	private final ObjectInputStream in;
+
+	private PresenceCondition next;
+	private VariableMap variableMap;
+	private CNF formula;
+	private ArrayList<String> pcNames;
+
+	public PresenceConditionReader(Path file) throws IOException {
+		final InputStream inputStream = Compression.newInputStream(file);
+		try {
+			in = new ObjectInputStream(inputStream);
+			next = read();
+		} catch (IOException | RuntimeException e) {
+			inputStream.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public PresenceCondition next() {
+		if (next == null) {
+			throw new NoSuchElementException();
+		}
+		final PresenceCondition pc = next;
+		next = read();
+		return pc;
+	}
+
+	public CNF getFormula() {
+		skipRemaining();
+		return formula;
+	}
+
+	public ArrayList<String> getPCNames() {
+		skipRemaining();
+		return pcNames;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private void skipRemaining() {
+		while (next != null) {
+			next = read();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private PresenceCondition read() {
+		try {
+			while (true) {
+				final int type = in.readByte();
+				switch (type) {
+				case PresenceConditionWriter.VARIABLE_MAP:
+					variableMap = (VariableMap) in.readObject();
+					break;
+				case PresenceConditionWriter.PRESENCE_CONDITION:
+					final Path filePath = Paths.get(in.readUTF());
+					final ClauseList dnf = readClauses();
+					final ClauseList negatedDnf = readClauses();
+					return new PresenceCondition(filePath, new CNF(variableMap, dnf), new CNF(variableMap, negatedDnf));
+				case PresenceConditionWriter.END:
+					formula = (CNF) in.readObject();
+					pcNames = (ArrayList<String>) in.readObject();
+					return null;
+				default:
+					throw new StreamCorruptedException("Unknown record type " + type);
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (final ClassNotFoundException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private ClauseList readClauses() throws IOException {
+		final int clauseCount = in.readInt();
+		final ClauseList clauses = new ClauseList(clauseCount);
+		for (int i = 0; i < clauseCount; i++) {
+			final int[] literals = new int[in.readInt()];
+			for (int j = 0; j < literals.length; j++) {
+				literals[j] = in.readInt();
+			}
+			clauses.add(new LiteralList(literals, Order.NATURAL, false));
+		}
+		return clauses;
+	}
+
+}
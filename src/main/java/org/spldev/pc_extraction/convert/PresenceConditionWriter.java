@@ -0,0 +1,95 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+import org.spldev.clauses.*;
+import org.spldev.formula.structure.atomic.literal.*;
+import org.spldev.pc_extraction.util.*;
+
+public class PresenceConditionWriter implements Consumer<PresenceCondition>, Closeable {
+
+	static final int END = 0;
+	static final int VARIABLE_MAP = 1;
+	static final int PRESENCE_CONDITION = 2;
+
+	private final ObjectOutputStream out;
+	private VariableMap variableMap;
+
+	public PresenceConditionWriter(Path file) throws IOException {
+		this(file, Compression.NONE);
+	}
+
+	public PresenceConditionWriter(Path file, Compression compression) throws IOException {
+		out = new ObjectOutputStream(compression.newOutputStream(file));
+	}
+
+	@Override
+	public void accept(PresenceCondition pc) {
+		try {
+			writeVariableMap(pc.getDnf().getVariableMap());
+			out.writeByte(PRESENCE_CONDITION);
+			out.writeUTF(pc.getFilePathString());
+			writeClauses(pc.getDnf().getClauses());
+			writeClauses(pc.getNegatedDnf().getClauses());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void finish(CNF formula, ArrayList<String> pcNames) throws IOException {
+		writeVariableMap(formula.getVariableMap());
+		out.writeByte(END);
+		out.writeObject(formula);
+		out.writeObject(pcNames);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+	private void writeVariableMap(VariableMap newVariableMap) throws IOException {
+		if (variableMap != newVariableMap) {
+			variableMap = newVariableMap;
+			out.writeByte(VARIABLE_MAP);
+			out.writeObject(variableMap);
+		}
+	}
+
+	private void writeClauses(ClauseList clauses) throws IOException {
+		out.writeInt(clauses.size());
+		for (final LiteralList clause : clauses) {
+			final int[] literals = clause.getLiterals();
+			out.writeInt(literals.length);
+			for (final int literal : literals) {
+				out.writeInt(literal);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.convert;
+
+import java.io.*;
+import java.util.*;
+
+import org.spldev.clauses.*;
+
+public class UnboundPresenceConditionList implements Serializable {
+
+	private static final long serialVersionUID = -2150467622722208577L;
+
+	private final ArrayList<String> variableNames;
+
+	private final ArrayList<String> expressions = new ArrayList<>();
+	private final ArrayList<int[]> expressionVariables = new ArrayList<>();
+	private final ArrayList<ClauseList> dnfs = new ArrayList<>();
+	private final ArrayList<ClauseList> negatedDnfs = new ArrayList<>();
+
+	private final ArrayList<String> filePaths = new ArrayList<>();
+	private final ArrayList<int[]> fileExpressions = new ArrayList<>();
+
+	public UnboundPresenceConditionList(List<String> variableNames) {
+		this.variableNames = new ArrayList<>(variableNames);
+	}
+
+	int addExpression(String expression, int[] variables, ClauseList dnf, ClauseList negatedDnf) {
+		expressions.add(expression);
+		expressionVariables.add(variables);
+		dnfs.add(dnf);
+		negatedDnfs.add(negatedDnf);
+		return expressions.size() - 1;
+	}
+
+	void addFile(String filePath, int[] expressionIds) {
+		filePaths.add(filePath);
+		fileExpressions.add(expressionIds);
+	}
+
+	public List<String> getVariableNames() {
+		return Collections.unmodifiableList(variableNames);
+	}
+
+	public int getExpressionCount() {
+		return expressions.size();
+	}
+
+	public String getExpression(int id) {
+		return expressions.get(id);
+	}
+
+	public int[] getExpressionVariables(int id) {
+		return expressionVariables.get(id);
+	}
+
+	public ClauseList getDnf(int id) {
+		return dnfs.get(id);
+	}
+
+	public ClauseList getNegatedDnf(int id) {
+		return negatedDnfs.get(id);
+	}
+
+	public int getFileCount() {
+		return filePaths.size();
+	}
+
+	public String getFilePath(int index) {
+		return filePaths.get(index);
+	}
+
+	public int[] getFileExpressions(int index) {
+		return fileExpressions.get(index);
+	}
+
+}
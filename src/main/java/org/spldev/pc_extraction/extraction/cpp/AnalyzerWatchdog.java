@@ -0,0 +1,155 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class AnalyzerWatchdog implements Closeable {
+
+	public enum Violation {
+		TIMEOUT, ALLOCATION
+	}
+
+	private static final long POLL_INTERVAL = 50;
+
+	private static final List<Thread> ABANDONED_THREADS = new ArrayList<>();
+
+	private final long timeout;
+	private final long allocationBudget;
+	private final int maxAbandonedThreads;
+
+	private ExecutorService executor;
+	private volatile Thread workerThread;
+
+	private long elapsedTime;
+	private Violation violation;
+
+	public AnalyzerWatchdog(long timeout, long allocationBudget, int maxAbandonedThreads) {
+		this.timeout = timeout;
+		this.allocationBudget = allocationBudget;
+		this.maxAbandonedThreads = maxAbandonedThreads;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public long getAllocationBudget() {
+		return allocationBudget;
+	}
+
+	public int getMaxAbandonedThreads() {
+		return maxAbandonedThreads;
+	}
+
+	public static int getAbandonedThreadCount() {
+		synchronized (ABANDONED_THREADS) {
+			ABANDONED_THREADS.removeIf(thread -> !thread.isAlive());
+			return ABANDONED_THREADS.size();
+		}
+	}
+
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	public Violation getViolation() {
+		return violation;
+	}
+
+	public <T> Optional<T> run(Callable<T> task) throws Exception {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "AnalyzerWatchdog-Worker");
+				thread.setDaemon(true);
+				workerThread = thread;
+				return thread;
+			});
+		}
+		violation = null;
+		final long start = System.nanoTime();
+		final Future<T> future = executor.submit(task);
+		final long startAllocation = getAllocatedBytes(workerThread);
+		try {
+			while (true) {
+				try {
+					return Optional.ofNullable(future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS));
+				} catch (final TimeoutException e) {
+					final long elapsed = (System.nanoTime() - start) / 1_000_000;
+					if ((timeout > 0) && (elapsed > timeout)) {
+						violation = Violation.TIMEOUT;
+					} else if ((allocationBudget > 0)
+						&& ((getAllocatedBytes(workerThread) - startAllocation) > allocationBudget)) {
+						violation = Violation.ALLOCATION;
+					}
+					if (violation != null) {
+						abandon(future);
+						return Optional.empty();
+					}
+				}
+			}
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e;
+		} finally {
+			elapsedTime = (System.nanoTime() - start) / 1_000_000;
+		}
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			workerThread = null;
+		}
+	}
+
+	private void abandon(Future<?> future) {
+		future.cancel(true);
+		final Thread abandonedThread = workerThread;
+		close();
+		if (abandonedThread != null) {
+			abandonedThread.setPriority(Thread.MIN_PRIORITY);
+			synchronized (ABANDONED_THREADS) {
+				ABANDONED_THREADS.add(abandonedThread);
+			}
+		}
+		final int abandonedThreadCount = getAbandonedThreadCount();
+		if (abandonedThreadCount > maxAbandonedThreads) {
+			throw new IllegalStateException(abandonedThreadCount + " abandoned analyzer threads are still running");
+		}
+	}
+
+	private static long getAllocatedBytes(Thread thread) {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if ((thread != null) && (threadBean instanceof com.sun.management.ThreadMXBean)) {
+			return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(thread.getId());
+		}
+		return 0;
+	}
+
+}
@@ -23,9 +23,11 @@
 package org.spldev.pc_extraction.extraction.cpp;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.charset.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.function.*;
 import java.util.stream.*;
 
 import org.spldev.pc_extraction.util.*;
@@ -38,6 +40,10 @@ import de.ovgu.spldev.featurecopp.splmodel.*;
 
 public class CPPExtractor {
 
+	public enum Engine {
+		FEATURECOPP, SCANNER, COMPARE
+	}
+
 	private static class NullStream extends PrintStream {
 		public NullStream() {
 			super(new OutputStream() {
@@ -68,14 +74,57 @@ public class CPPExtractor {
 		}
 	}
 
+	private static class QuarantineReason {
+		private final long elapsedTime;
+		private final AnalyzerWatchdog.Violation violation;
+
+		public QuarantineReason(long elapsedTime, AnalyzerWatchdog.Violation violation) {
+			this.elapsedTime = elapsedTime;
+			this.violation = violation;
+		}
+	}
+
 	private static final List<Charset> charsets = Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1);
 
 	private Path systemPath;
 	private Path outputPath;
 	private List<Path> excludePaths = new ArrayList<>();
-	private HashSet<String> allPCs = new HashSet<>();
+	private ExternalSortedSet allPCs;
+	private long memoryBudget = 256L << 20;
+	private Engine engine = Engine.FEATURECOPP;
+	private Compression compression = Compression.NONE;
+	private final DirectiveScanner directiveScanner = new DirectiveScanner();
+
+	private AsyncFileWriter fileWriter;
+	private int outputQueueCapacity = 1024;
 
 	private long fileCounter;
+	private long fallbackCounter;
+	private long comparedFileCounter;
+	private long mismatchedFileCounter;
+	private long scannerTime;
+	private long analyzerTime;
+	private long skippedFileCounter;
+	private boolean skipFilesWithoutDirectives = true;
+
+	private ExtractionCheckpoint checkpoint;
+	private Path checkpointFile;
+	private int checkpointInterval = 1000;
+	private long resumedFileCounter;
+
+	private CPPAnalyzer cppAnalyzer;
+	private AnalyzerWatchdog watchdog;
+	private long fileTimeout = 0;
+	private long fileAllocationBudget = 0;
+	private int maxAbandonedThreads = 4;
+	private Path quarantineFile;
+	private Path currentQuarantineFile;
+	private long quarantinedFileCounter;
+
+	private int contentCacheSize = 4096;
+	private LinkedHashMap<ByteBuffer, List<String>> contentCache;
+	private HashMap<ByteBuffer, QuarantineReason> quarantinedContents;
+	private long deduplicatedFileCounter;
 
 	public CPPExtractor() {
 		excludePaths.add(Paths.get("scripts"));
@@ -93,6 +142,216 @@ public class CPPExtractor {
 		return excludePaths;
 	}
 
+	public long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	public long getFallbackCount() {
+		return fallbackCounter;
+	}
+
+	public long getComparedFileCount() {
+		return comparedFileCounter;
+	}
+
+	public long getMismatchedFileCount() {
+		return mismatchedFileCounter;
+	}
+
+	public boolean isSkipFilesWithoutDirectives() {
+		return skipFilesWithoutDirectives;
+	}
+
+	public void setSkipFilesWithoutDirectives(boolean skipFilesWithoutDirectives) {
+		this.skipFilesWithoutDirectives = skipFilesWithoutDirectives;
+	}
+
+	public long getSkippedFileCount() {
+		return skippedFileCounter;
+	}
+
+	public int getOutputQueueCapacity() {
+		return outputQueueCapacity;
+	}
+
+	public void setOutputQueueCapacity(int outputQueueCapacity) {
+		this.outputQueueCapacity = outputQueueCapacity;
+	}
+
+	public long getBackpressureTime() {
+		return fileWriter != null ? fileWriter.getBackpressureTime() : 0;
+	}
+
+	public Path getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	public void setCheckpointFile(Path checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	public int getCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public long getResumedFileCount() {
+		return resumedFileCounter;
+	}
+
+	public long getFileTimeout() {
+		return fileTimeout;
+	}
+
+	public void setFileTimeout(long fileTimeout) {
+		this.fileTimeout = fileTimeout;
+	}
+
+	public long getFileAllocationBudget() {
+		return fileAllocationBudget;
+	}
+
+	public void setFileAllocationBudget(long fileAllocationBudget) {
+		this.fileAllocationBudget = fileAllocationBudget;
+	}
+
+	public int getMaxAbandonedThreads() {
+		return maxAbandonedThreads;
+	}
+
+	public void setMaxAbandonedThreads(int maxAbandonedThreads) {
+		this.maxAbandonedThreads = maxAbandonedThreads;
+	}
+
+	public Path getQuarantineFile() {
+		return quarantineFile;
+	}
+
+	public void setQuarantineFile(Path quarantineFile) {
+		this.quarantineFile = quarantineFile;
+	}
+
+	public long getQuarantinedFileCount() {
+		return quarantinedFileCounter;
+	}
+
+	public int getContentCacheSize() {
+		return contentCacheSize;
+	}
+
+	public void setContentCacheSize(int contentCacheSize) {
+		this.contentCacheSize = contentCacheSize;
+	}
+
+	public long getDeduplicatedFileCount() {
+		return deduplicatedFileCounter;
+	}
+
+	private List<String> getPresenceConditions(Path p, List<String> lines) throws IOException {
+		if (engine == Engine.COMPARE) {
+			return comparePresenceConditions(p, lines);
+		}
+		if (engine == Engine.SCANNER) {
+			final Optional<List<String>> pcs = directiveScanner.scan(lines);
+			if (pcs.isPresent()) {
+				return pcs.get();
+			}
+			fallbackCounter++;
+		}
+		return analyzePresenceConditions(lines);
+	}
+
+	private List<String> comparePresenceConditions(Path p, List<String> lines) throws IOException {
+		final long scannerStart = System.nanoTime();
+		final Optional<List<String>> scannedPCs = directiveScanner.scan(lines);
+		scannerTime += System.nanoTime() - scannerStart;
+		final long analyzerStart = System.nanoTime();
+		final List<String> pcs = analyzePresenceConditions(lines);
+		analyzerTime += System.nanoTime() - analyzerStart;
+		if (pcs != null) {
+			comparedFileCounter++;
+			if (!scannedPCs.isPresent()) {
+				fallbackCounter++;
+			} else {
+				final List<String> scanned = scannedPCs.get();
+				for (int i = 0; i < pcs.size(); i++) {
+					final String scannedPC = i < scanned.size() ? scanned.get(i) : "";
+					if (!ExpressionNormalizer.normalize(scannedPC).equals(ExpressionNormalizer.normalize(pcs.get(i)))) {
+						mismatchedFileCounter++;
+						Logger.logInfo("Scanner differs from CPPAnalyzer in " + p + " at line " + (i + 1) + ": "
+							+ scannedPC + " <> " + pcs.get(i));
+						break;
+					}
+				}
+			}
+		}
+		return pcs;
+	}
+
+	private List<String> analyzePresenceConditions(List<String> lines) throws IOException {
+		if (watchdog == null) {
+			return extractPresenceConditions(cppAnalyzer, lines);
+		}
+		final CPPAnalyzer currentAnalyzer = cppAnalyzer;
+		try {
+			final Optional<List<String>> pcs = watchdog.run(() -> extractPresenceConditions(currentAnalyzer, lines));
+			if (!pcs.isPresent()) {
+				cppAnalyzer = createAnalyzer();
+				return null;
+			}
+			return pcs.get();
+		} catch (final IOException | RuntimeException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	private CPPAnalyzer createAnalyzer() {
+		final de.ovgu.spldev.featurecopp.log.Logger logger = new de.ovgu.spldev.featurecopp.log.Logger();
+		logger.addInfoStream(new NullStream());
+		logger.addFailStream(new NullStream());
+		final UserConf config = Configuration.getDefault();
+		config.setInputDirectory("");
+		config.setMacroPattern(".*");
+		return new CPPAnalyzer(logger, config);
+	}
+
+	private void quarantine(Path p, long size, long lastModified, QuarantineReason reason) throws IOException {
+		quarantinedFileCounter++;
+		final String entry = getCheckpointKey(p) + "\t" + size + "\t" + reason.elapsedTime + "\t" + reason.violation
+			+ System.lineSeparator();
+		Logger.logError("Quarantined " + p + " (" + reason.violation + " after " + reason.elapsedTime + "ms)");
+		Files.write(currentQuarantineFile, entry.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+			StandardOpenOption.APPEND);
+		if (checkpoint != null) {
+			checkpoint.markQuarantined(getCheckpointKey(p), size, lastModified);
+		}
+	}
+
 	private List<String> extractPresenceConditions(CPPAnalyzer cppAnalyzer, List<String> lines) {
 		final StringBuilder sb = new StringBuilder();
 		for (final String line : lines) {
@@ -143,7 +402,30 @@ public class CPPExtractor {
 		}
 	}
 
+	public List<Path> getFiles(Path systemPath) {
+		final FileProvider fileProvider = new FileProvider(systemPath);
+		fileProvider.setFileNameRegex(FileProvider.CFileRegex);
+		excludePaths.forEach(fileProvider::addExclude);
+		return fileProvider.getFileStream().collect(Collectors.toList());
+	}
+
 	public boolean extract(Path systemPath, Path outputPath) {
+		if (!Files.isReadable(systemPath)) {
+			Logger.logError(systemPath + " is not readable!");
+			return false;
+		}
+		final List<Path> files;
+		try {
+			files = getFiles(systemPath);
+		} catch (final Exception e) {
+			Logger.logError(e);
+			return false;
+		}
+		return extract(systemPath, outputPath, files,
+			outputPath.resolve(systemPath.getFileName()).resolve("all_pcs" + ".list"));
+	}
+
+	public boolean extract(Path systemPath, Path outputPath, List<Path> files, Path allPCsFile) {
 		if (!Files.isReadable(systemPath)) {
 			Logger.logError(systemPath + " is not readable!");
 			return false;
@@ -151,64 +433,289 @@ public class CPPExtractor {
 		Configuration.REPORT_ONLY = true;
 		this.systemPath = systemPath.toAbsolutePath().normalize();
 		this.outputPath = outputPath.toAbsolutePath().normalize();
-		allPCs.clear();
+		allPCs = new ExternalSortedSet(memoryBudget);
+		checkpoint = null;
+		resumedFileCounter = 0;
 		try {
-			final de.ovgu.spldev.featurecopp.log.Logger logger = new de.ovgu.spldev.featurecopp.log.Logger();
-			logger.addInfoStream(new NullStream());
-			logger.addFailStream(new NullStream());
-			final UserConf config = Configuration.getDefault();
-			config.setInputDirectory("");
-			config.setMacroPattern(".*");
-			final CPPAnalyzer cppAnalyzer = new CPPAnalyzer(logger, config);
-
-			final FileProvider fileProvider = new FileProvider(systemPath);
-			fileProvider.setFileNameRegex(FileProvider.CFileRegex);
-			excludePaths.forEach(fileProvider::addExclude);
-
-			final long fileCount = fileProvider.getFileStream().count();
+			boolean resuming = false;
+			if (checkpointInterval > 0) {
+				checkpoint = new ExtractionCheckpoint(checkpointFile != null ? checkpointFile
+					: allPCsFile.resolveSibling("extraction.checkpoint"));
+				resuming = checkpoint.load();
+				final List<String> removedFiles = resuming
+					? checkpoint.retainAll(files.stream().map(this::getCheckpointKey).collect(Collectors.toList()))
+					: Collections.emptyList();
+				for (final String removedFile : removedFiles) {
+					final Path sourceFile = this.systemPath.resolve(removedFile);
+					if (!Files.exists(sourceFile)) {
+						Files.deleteIfExists(getOutputFile(sourceFile));
+					}
+				}
+				if (!removedFiles.isEmpty()) {
+					Logger.logInfo("Dropped " + removedFiles.size() + " files that are no longer extracted from "
+						+ checkpoint.getFile());
+				}
+				if (resuming && removedFiles.isEmpty() && checkpoint.isComplete() && Files.exists(allPCsFile)
+					&& files.stream().allMatch(this::isCompleted)) {
+					resumedFileCounter = files.size();
+					Logger.logInfo("Extraction is already complete according to " + checkpoint.getFile());
+					return true;
+				}
+			}
+
+			cppAnalyzer = createAnalyzer();
+			if ((fileTimeout > 0) || (fileAllocationBudget > 0)) {
+				watchdog = new AnalyzerWatchdog(fileTimeout, fileAllocationBudget, maxAbandonedThreads);
+			}
+			currentQuarantineFile = quarantineFile != null ? quarantineFile
+				: allPCsFile.resolveSibling("quarantine.list");
+			if (!resuming) {
+				Files.deleteIfExists(currentQuarantineFile);
+			}
+
+			final long fileCount = files.size();
 			fileCounter = 0;
+			fallbackCounter = 0;
+			comparedFileCounter = 0;
+			mismatchedFileCounter = 0;
+			scannerTime = 0;
+			analyzerTime = 0;
+			skippedFileCounter = 0;
+			quarantinedFileCounter = 0;
+			deduplicatedFileCounter = 0;
+			contentCache = new LinkedHashMap<>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ByteBuffer, List<String>> eldest) {
+					return size() > contentCacheSize;
+				}
+			};
+			quarantinedContents = new HashMap<>();
 
-			fileProvider.getFileStream() //
-				.forEach(p -> {
+			fileWriter = new AsyncFileWriter(outputQueueCapacity);
+			try {
+				for (final Path p : files) {
+					fileWriter.checkFailure();
 					Logger.logProgress("(" + ++fileCounter + "/" + fileCount + ") " + p.toString());
-					parse(cppAnalyzer, p);
-				});
-			final Path outputFile = outputPath.resolve(systemPath.getFileName()).resolve("all_pcs" + ".list");
-			final List<String> allPCsSorted = allPCs.stream().sorted().collect(Collectors.toList());
-			Files.write(outputFile, allPCsSorted, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
-				StandardOpenOption.TRUNCATE_EXISTING);
+					if (resuming && resume(p)) {
+						resumedFileCounter++;
+					} else {
+						parse(p);
+					}
+					if ((checkpoint != null) && ((fileCounter % checkpointInterval) == 0)) {
+						checkpoint.save(false);
+					}
+				}
+			} finally {
+				fileWriter.close();
+			}
+			Logger.logInfo("Time blocked on output: " + (fileWriter.getBackpressureTime() / 1_000_000) + "ms");
+			allPCs.write(allPCsFile, compression);
+			if (checkpoint != null) {
+				checkpoint.save(true);
+			}
+			if (resumedFileCounter > 0) {
+				Logger.logInfo("Resumed " + resumedFileCounter + " files from " + checkpoint.getFile());
+			}
+			if (quarantinedFileCounter > 0) {
+				Logger.logInfo("Quarantined " + quarantinedFileCounter + " files (see " + currentQuarantineFile + ")");
+			}
+			if (deduplicatedFileCounter > 0) {
+				Logger.logInfo("Reused presence conditions for " + deduplicatedFileCounter + " duplicate files");
+			}
+			Logger.logInfo("Skipped " + skippedFileCounter + " files without conditional directives");
+			if (fallbackCounter > 0) {
+				Logger.logInfo("Fell back to CPPAnalyzer for " + fallbackCounter + " files");
+			}
+			if (engine == Engine.COMPARE) {
+				Logger.logInfo("Compared scanner with CPPAnalyzer on " + comparedFileCounter + " files: "
+					+ mismatchedFileCounter + " differ, scanner " + (scannerTime / 1_000_000) + "ms, CPPAnalyzer "
+					+ (analyzerTime / 1_000_000) + "ms");
+			}
 			return true;
 		} catch (final Exception e) {
 			Logger.logError(e);
 			return false;
-		}
-	}
-
-	private void parse(final CPPAnalyzer cppAnalyzer, Path p) {
-		for (final Charset charset : charsets) {
+		} finally {
+			if (watchdog != null) {
+				watchdog.close();
+				watchdog = null;
+			}
+			cppAnalyzer = null;
+			contentCache = null;
+			quarantinedContents = null;
 			try {
-				final List<String> lines = Files.readAllLines(p, charset);
-				final List<String> pcs = extractPresenceConditions(cppAnalyzer, lines);
-				pcs.stream().filter(s -> !s.isBlank()).forEach(allPCs::add);
-
-				final Path filePath = p.toAbsolutePath().normalize();
-				final Path relativizeFilePath = systemPath.getFileName().resolve(systemPath.relativize(filePath));
-				final Path outputDir = outputPath.resolve(relativizeFilePath).getParent();
-				final Path outputFile = outputDir.resolve(filePath.getFileName().toString() + ".pc");
-				Files.deleteIfExists(outputFile);
-				Files.createDirectories(outputDir);
-				Files.write(outputFile, Arrays.asList(relativizeFilePath.toString()), StandardOpenOption.WRITE,
-					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-				if (pcs.stream().filter(s -> !s.isBlank()).findAny().isPresent()) {
-					Files.write(outputFile, pcs, StandardOpenOption.APPEND);
-				}
-			} catch (final MalformedInputException e) {
+				allPCs.close();
 			} catch (final IOException e) {
-				Logger.logError(p.toString());
 				Logger.logError(e);
+			}
+		}
+	}
+
+	private boolean isCompleted(Path p) {
+		try {
+			final Long outputLength = getOutputLength(p);
+			if (outputLength == null) {
+				return false;
+			}
+			final Path outputFile = getOutputFile(p);
+			return (outputLength == ExtractionCheckpoint.QUARANTINED)
+				|| (Files.isReadable(outputFile) && (Files.size(outputFile) == outputLength));
+		} catch (final IOException e) {
+			return false;
+		}
+	}
+
+	private Long getOutputLength(Path p) throws IOException {
+		return checkpoint.getOutputLength(getCheckpointKey(p), Files.size(p), Files.getLastModifiedTime(p).toMillis());
+	}
+
+	private boolean resume(Path p) {
+		final Path outputFile = getOutputFile(p);
+		try {
+			final Long outputLength = getOutputLength(p);
+			if (outputLength != null) {
+				if (outputLength == ExtractionCheckpoint.QUARANTINED) {
+					quarantinedFileCounter++;
+					return true;
+				}
+				final List<String> pcs = readOutput(p, outputFile, outputLength);
+				if (pcs != null) {
+					pcs.forEach(allPCs::add);
+					return true;
+				}
+				Logger.logInfo("Discarding incomplete output " + outputFile);
+			}
+			Files.deleteIfExists(outputFile);
+		} catch (final IOException e) {
+			Logger.logError(outputFile.toString());
+			Logger.logError(e);
+		}
+		return false;
+	}
+
+	private List<String> readOutput(Path p, Path outputFile, long outputLength) {
+		try {
+			if (!Files.isReadable(outputFile) || (Files.size(outputFile) != outputLength)) {
+				return null;
+			}
+			try (BufferedReader reader = Compression.newBufferedReader(outputFile)) {
+				if (!getRelativePath(p).toString().equals(reader.readLine())) {
+					return null;
+				}
+				final List<String> pcs = new ArrayList<>();
+				for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+					if (!line.isBlank()) {
+						pcs.add(line);
+					}
+				}
+				return pcs;
+			}
+		} catch (final IOException e) {
+			return null;
+		}
+	}
+
+	private String getCheckpointKey(Path p) {
+		return systemPath.relativize(p.toAbsolutePath().normalize()).toString();
+	}
+
+	private void parse(Path p) {
+		try {
+			final long lastModified = Files.getLastModifiedTime(p).toMillis();
+			final byte[] content = Files.readAllBytes(p);
+			final LongConsumer onWritten;
+			if (checkpoint != null) {
+				final ExtractionCheckpoint currentCheckpoint = checkpoint;
+				final String checkpointKey = getCheckpointKey(p);
+				onWritten = outputLength -> currentCheckpoint.markCompleted(checkpointKey, content.length,
+					lastModified, outputLength);
+			} else {
+				onWritten = null;
+			}
+			if (skipFilesWithoutDirectives && !DirectiveFilter.containsConditionalDirective(content)) {
+				skippedFileCounter++;
+				writePresenceConditions(p, Collections.emptyList(), onWritten);
 				return;
 			}
+			final ByteBuffer digest = contentCacheSize > 0 ? ContentDigest.of(content) : null;
+			if (digest != null) {
+				final List<String> cachedPCs = contentCache.get(digest);
+				if (cachedPCs != null) {
+					deduplicatedFileCounter++;
+					writePresenceConditions(p, cachedPCs, onWritten);
+					return;
+				}
+				final QuarantineReason quarantineReason = quarantinedContents.get(digest);
+				if (quarantineReason != null) {
+					deduplicatedFileCounter++;
+					quarantine(p, content.length, lastModified, quarantineReason);
+					return;
+				}
+			}
+			for (final Charset charset : charsets) {
+				try {
+					final List<String> lines = readLines(content, charset);
+					final List<String> pcs = getPresenceConditions(p, lines);
+					if (pcs == null) {
+						final QuarantineReason quarantineReason = new QuarantineReason(watchdog.getElapsedTime(),
+							watchdog.getViolation());
+						if (digest != null) {
+							quarantinedContents.put(digest, quarantineReason);
+						}
+						quarantine(p, content.length, lastModified, quarantineReason);
+						return;
+					}
+					pcs.stream().filter(s -> !s.isBlank()).forEach(allPCs::add);
+					if (digest != null) {
+						contentCache.put(digest, pcs);
+					}
+					writePresenceConditions(p, pcs, onWritten);
+					return;
+				} catch (final MalformedInputException e) {
+				}
+			}
+		} catch (final IOException e) {
+			Logger.logError(p.toString());
+			Logger.logError(e);
+		}
+	}
+
+	private List<String> readLines(byte[] content, Charset charset) throws IOException {
+		try (BufferedReader reader = new BufferedReader(
+			new InputStreamReader(new ByteArrayInputStream(content), charset.newDecoder()))) {
+			final List<String> lines = new ArrayList<>();
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lines.add(line);
+			}
+			return lines;
+		}
+	}
+
+	private Path getRelativePath(Path p) {
+		return systemPath.getFileName().resolve(systemPath.relativize(p.toAbsolutePath().normalize()));
+	}
+
+	private Path getOutputFile(Path p) {
+		final Path relativeFilePath = getRelativePath(p);
+		return outputPath.resolve(relativeFilePath).resolveSibling(relativeFilePath.getFileName() + ".pc");
+	}
+
+	private void writePresenceConditions(Path p, List<String> pcs, LongConsumer onWritten) throws IOException {
+		final Path relativizeFilePath = getRelativePath(p);
+		final Path outputFile = getOutputFile(p);
+
+		final String lineSeparator = System.lineSeparator();
+		final StringBuilder sb = new StringBuilder();
+		sb.append(relativizeFilePath.toString()).append(lineSeparator);
+		if (pcs.stream().filter(s -> !s.isBlank()).findAny().isPresent()) {
+			for (final String pc : pcs) {
+				sb.append(pc).append(lineSeparator);
+			}
 		}
+		final byte[] output = compression.compress(sb.toString().getBytes(StandardCharsets.UTF_8));
+		fileWriter.write(outputFile, output, onWritten != null ? () -> onWritten.accept(output.length) : null);
 	}
 
 }
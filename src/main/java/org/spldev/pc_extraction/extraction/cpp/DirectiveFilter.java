@@ -0,0 +1,90 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.lang.invoke.*;
+import java.nio.*;
+
+public final class DirectiveFilter {
+
+	private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+		ByteOrder.LITTLE_ENDIAN);
+
+	private static final long HASHES = 0x2323232323232323L;
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	private DirectiveFilter() {
+	}
+
+	public static boolean containsConditionalDirective(byte[] content) {
+		int index = 0;
+		final int limit = content.length - Long.BYTES;
+		while (index <= limit) {
+			final long word = ((long) LONG_VIEW.get(content, index)) ^ HASHES;
+			final long matches = (word - LOW_BITS) & ~word & HIGH_BITS;
+			if (matches == 0) {
+				index += Long.BYTES;
+			} else {
+				final int hashIndex = index + (Long.numberOfTrailingZeros(matches) >>> 3);
+				if (isConditionalDirective(content, hashIndex)) {
+					return true;
+				}
+				index = hashIndex + 1;
+			}
+		}
+		for (; index < content.length; index++) {
+			if ((content[index] == '#') && isConditionalDirective(content, index)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isConditionalDirective(byte[] content, int hashIndex) {
+		int index = hashIndex + 1;
+		while (index < content.length) {
+			switch (content[index]) {
+			case ' ':
+			case '\t':
+			case '\f':
+			case 0x0B:
+			case '\\':
+			case '\r':
+			case '\n':
+				index++;
+				break;
+			case '/':
+				return true;
+			case 'i':
+				return ((index + 1) < content.length) && (content[index + 1] == 'f');
+			case 'e':
+				return ((index + 1) < content.length) && ((content[index + 1] == 'l') || (content[index + 1] == 'n'));
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+
+}
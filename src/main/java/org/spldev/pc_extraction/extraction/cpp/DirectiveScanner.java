@@ -0,0 +1,227 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.util.*;
+
+public class DirectiveScanner {
+
+	private static class Block {
+		private final String enclosingCondition;
+		private final List<String> previousConditions = new ArrayList<>();
+		private String branchCondition;
+
+		public Block(String enclosingCondition) {
+			this.enclosingCondition = enclosingCondition;
+		}
+	}
+
+	private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+	private final StringBuilder logicalLine = new StringBuilder();
+	private boolean inBlockComment;
+	private boolean inLineComment;
+
+	public Optional<List<String>> scan(List<String> lines) {
+		blocks.clear();
+		inBlockComment = false;
+
+		final String[] pcs = new String[lines.size() + 1];
+		Arrays.fill(pcs, "");
+
+		int lineIndex = 0;
+		while (lineIndex < lines.size()) {
+			final int firstLine = lineIndex;
+			logicalLine.setLength(0);
+			inLineComment = false;
+			String line = lines.get(lineIndex++);
+			while (true) {
+				if (line.endsWith("\\") && (lineIndex < lines.size())) {
+					stripComments(line, 0, line.length() - 1);
+				} else {
+					stripComments(line, 0, line.length());
+					if (!inBlockComment || (lineIndex >= lines.size())) {
+						break;
+					}
+				}
+				line = lines.get(lineIndex++);
+			}
+
+			final String pc;
+			final String code = logicalLine.toString().trim();
+			if (code.startsWith("#")) {
+				pc = processDirective(code);
+				if (pc == null) {
+					return Optional.empty();
+				}
+			} else {
+				pc = getCurrentCondition();
+			}
+			Arrays.fill(pcs, firstLine, lineIndex, pc);
+		}
+
+		if (!blocks.isEmpty() || inBlockComment) {
+			return Optional.empty();
+		}
+		return Optional.of(Arrays.asList(pcs));
+	}
+
+	private String processDirective(String code) {
+		int index = 1;
+		while ((index < code.length()) && Character.isWhitespace(code.charAt(index))) {
+			index++;
+		}
+		final int nameStart = index;
+		while ((index < code.length()) && Character.isLetter(code.charAt(index))) {
+			index++;
+		}
+		final String directive = code.substring(nameStart, index);
+		final String argument = normalize(code.substring(index));
+
+		switch (directive) {
+		case "if":
+			return openBlock(argument);
+		case "ifdef":
+			return argument.isEmpty() ? null : openBlock("(" + argument + ")");
+		case "ifndef":
+			return argument.isEmpty() ? null : openBlock("!(" + argument + ")");
+		case "elif":
+			return nextBranch(argument);
+		case "else":
+			return nextBranch(null);
+		case "endif":
+			return closeBlock();
+		default:
+			return getCurrentCondition();
+		}
+	}
+
+	private String openBlock(String condition) {
+		if (condition.isEmpty()) {
+			return null;
+		}
+		final Block block = new Block(getCurrentCondition());
+		block.branchCondition = condition;
+		block.previousConditions.add(condition);
+		blocks.push(block);
+		return getCurrentCondition();
+	}
+
+	private String nextBranch(String condition) {
+		final Block block = blocks.peek();
+		if ((block == null) || ((condition != null) && condition.isEmpty())) {
+			return null;
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final String previousCondition : block.previousConditions) {
+			if (sb.length() > 0) {
+				sb.append("&&");
+			}
+			sb.append("!(").append(previousCondition).append(')');
+		}
+		if (condition != null) {
+			sb.append("&&(").append(condition).append(')');
+			block.previousConditions.add(condition);
+		}
+		block.branchCondition = sb.toString();
+		return getCurrentCondition();
+	}
+
+	private String closeBlock() {
+		final String condition = getCurrentCondition();
+		return blocks.poll() == null ? null : condition;
+	}
+
+	private String getCurrentCondition() {
+		final Block block = blocks.peek();
+		return block == null ? "" : nest(block.enclosingCondition, block.branchCondition);
+	}
+
+	private static String nest(String enclosingCondition, String condition) {
+		return enclosingCondition.isEmpty() ? condition : "(" + enclosingCondition + ")&&(" + condition + ")";
+	}
+
+	private static String normalize(String expression) {
+		final StringBuilder sb = new StringBuilder(expression.length());
+		for (int i = 0; i < expression.length(); i++) {
+			final char c = expression.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				sb.append(c);
+			}
+		}
+		return sb.toString().replace("defined", "");
+	}
+
+	private void stripComments(String line, int start, int end) {
+		if (inLineComment) {
+			return;
+		}
+		int index = start;
+		while (index < end) {
+			final char c = line.charAt(index);
+			if (inBlockComment) {
+				if ((c == '*') && ((index + 1) < end) && (line.charAt(index + 1) == '/')) {
+					inBlockComment = false;
+					logicalLine.append(' ');
+					index += 2;
+				} else {
+					index++;
+				}
+			} else if ((c == '/') && ((index + 1) < end)) {
+				final char next = line.charAt(index + 1);
+				if (next == '*') {
+					inBlockComment = true;
+					index += 2;
+				} else if (next == '/') {
+					inLineComment = true;
+					return;
+				} else {
+					logicalLine.append(c);
+					index++;
+				}
+			} else if ((c == '"') || (c == '\'')) {
+				index = skipLiteral(line, index, end, c);
+			} else {
+				logicalLine.append(c);
+				index++;
+			}
+		}
+	}
+
+	private int skipLiteral(String line, int start, int end, char quote) {
+		logicalLine.append(quote);
+		int index = start + 1;
+		while (index < end) {
+			final char c = line.charAt(index++);
+			logicalLine.append(c);
+			if (c == '\\') {
+				if (index < end) {
+					logicalLine.append(line.charAt(index++));
+				}
+			} else if (c == quote) {
+				break;
+			}
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,175 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.util.*;
+
+public final class ExpressionNormalizer {
+
+	private static final String AND = "&&";
+	private static final String OR = "||";
+	private static final String NOT = "!";
+
+	private static class Node {
+		private final String operator;
+		private final List<Node> children;
+		private final String atom;
+
+		private Node(String operator, List<Node> children) {
+			this.operator = operator;
+			this.children = children;
+			atom = null;
+		}
+
+		private Node(String atom) {
+			operator = null;
+			children = Collections.emptyList();
+			this.atom = atom;
+		}
+	}
+
+	private final List<String> tokens;
+	private int position;
+
+	private ExpressionNormalizer(List<String> tokens) {
+		this.tokens = tokens;
+	}
+
+	public static String normalize(String expression) {
+		final List<String> tokens = tokenize(expression);
+		if (tokens.isEmpty()) {
+			return "";
+		}
+		try {
+			final ExpressionNormalizer normalizer = new ExpressionNormalizer(tokens);
+			final Node node = normalizer.parseOr();
+			if (normalizer.position < tokens.size()) {
+				return expression.replaceAll("\\s", "");
+			}
+			return render(node);
+		} catch (final IllegalArgumentException e) {
+			return expression.replaceAll("\\s", "");
+		}
+	}
+
+	private static List<String> tokenize(String expression) {
+		final List<String> tokens = new ArrayList<>();
+		final StringBuilder atom = new StringBuilder();
+		for (int i = 0; i < expression.length(); i++) {
+			final char c = expression.charAt(i);
+			final char next = (i + 1) < expression.length() ? expression.charAt(i + 1) : 0;
+			final String operator;
+			if ((c == '(') || (c == ')')) {
+				operator = String.valueOf(c);
+			} else if (((c == '&') || (c == '|')) && (next == c)) {
+				operator = c == '&' ? AND : OR;
+				i++;
+			} else if ((c == '!') && (next != '=')) {
+				operator = NOT;
+			} else {
+				if (!Character.isWhitespace(c)) {
+					atom.append(c);
+				}
+				continue;
+			}
+			if (atom.length() > 0) {
+				tokens.add(atom.toString());
+				atom.setLength(0);
+			}
+			tokens.add(operator);
+		}
+		if (atom.length() > 0) {
+			tokens.add(atom.toString());
+		}
+		return tokens;
+	}
+
+	private Node parseOr() {
+		return parseBinary(OR);
+	}
+
+	private Node parseBinary(String operator) {
+		final List<Node> children = new ArrayList<>();
+		children.add(OR.equals(operator) ? parseBinary(AND) : parseUnary());
+		while ((position < tokens.size()) && operator.equals(tokens.get(position))) {
+			position++;
+			children.add(OR.equals(operator) ? parseBinary(AND) : parseUnary());
+		}
+		return children.size() == 1 ? children.get(0) : new Node(operator, children);
+	}
+
+	private Node parseUnary() {
+		final String token = next();
+		switch (token) {
+		case NOT:
+			final Node operand = parseUnary();
+			return NOT.equals(operand.operator) ? operand.children.get(0)
+				: new Node(NOT, Collections.singletonList(operand));
+		case "(":
+			final Node node = parseOr();
+			if (!")".equals(next())) {
+				throw new IllegalArgumentException();
+			}
+			return node;
+		case ")":
+		case AND:
+		case OR:
+			throw new IllegalArgumentException(token);
+		default:
+			return new Node(token);
+		}
+	}
+
+	private String next() {
+		if (position >= tokens.size()) {
+			throw new IllegalArgumentException();
+		}
+		return tokens.get(position++);
+	}
+
+	private static String render(Node node) {
+		if (node.atom != null) {
+			return node.atom;
+		}
+		if (NOT.equals(node.operator)) {
+			final Node child = node.children.get(0);
+			return NOT + (child.atom != null ? render(child) : "(" + render(child) + ")");
+		}
+		final TreeSet<String> operands = new TreeSet<>();
+		collectOperands(node, node.operator, operands);
+		return String.join(node.operator, operands);
+	}
+
+	private static void collectOperands(Node node, String operator, Set<String> operands) {
+		for (final Node child : node.children) {
+			if (operator.equals(child.operator)) {
+				collectOperands(child, operator, operands);
+			} else if (AND.equals(child.operator) || OR.equals(child.operator)) {
+				operands.add("(" + render(child) + ")");
+			} else {
+				operands.add(render(child));
+			}
+		}
+	}
+
+}
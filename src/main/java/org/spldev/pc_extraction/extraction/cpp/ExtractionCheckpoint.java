@@ -0,0 +1,161 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ExtractionCheckpoint {
+
+	public static final long QUARANTINED = -1;
+
+	private static final String HEADER = "# pc-extraction checkpoint v2";
+	private static final String COMPLETE = "# complete";
+
+	private final Path file;
+	private final ConcurrentHashMap<String, String> completedFiles = new ConcurrentHashMap<>();
+	private boolean complete;
+
+	public ExtractionCheckpoint(Path file) {
+		this.file = file;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public boolean load() throws IOException {
+		completedFiles.clear();
+		complete = false;
+		if (!Files.isReadable(file)) {
+			return false;
+		}
+		final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+			return false;
+		}
+		for (final String line : lines.subList(1, lines.size())) {
+			if (COMPLETE.equals(line)) {
+				complete = true;
+			} else {
+				int separator = -1;
+				for (int i = 0; i < 3; i++) {
+					separator = line.indexOf('\t', separator + 1);
+					if (separator < 0) {
+						break;
+					}
+				}
+				if (separator > 0) {
+					completedFiles.put(line.substring(separator + 1), line.substring(0, separator));
+				}
+			}
+		}
+		return true;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public int getCompletedFileCount() {
+		return completedFiles.size();
+	}
+
+	public List<String> retainAll(Collection<String> filePaths) {
+		final HashSet<String> retainedFiles = new HashSet<>(filePaths);
+		final List<String> removedFiles = new ArrayList<>();
+		completedFiles.keySet().removeIf(filePath -> {
+			if (retainedFiles.contains(filePath)) {
+				return false;
+			}
+			removedFiles.add(filePath);
+			return true;
+		});
+		return removedFiles;
+	}
+
+	public Long getOutputLength(String filePath, long size, long lastModified) {
+		final String entry = completedFiles.get(filePath);
+		final String stamp = getStamp(size, lastModified);
+		if ((entry == null) || !entry.startsWith(stamp)) {
+			return null;
+		}
+		try {
+			return Long.parseLong(entry.substring(stamp.length()));
+		} catch (final NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public void markCompleted(String filePath, long size, long lastModified, long outputLength) {
+		completedFiles.put(filePath, getStamp(size, lastModified) + outputLength);
+	}
+
+	public void markQuarantined(String filePath, long size, long lastModified) {
+		markCompleted(filePath, size, lastModified, QUARANTINED);
+	}
+
+	public void save(boolean complete) throws IOException {
+		this.complete = complete;
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		Files.createDirectories(tempFile.toAbsolutePath().getParent());
+		try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING);
+			BufferedWriter writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8))) {
+			writer.write(HEADER);
+			writer.newLine();
+			for (final Map.Entry<String, String> entry : completedFiles.entrySet()) {
+				writer.write(entry.getValue());
+				writer.write('\t');
+				writer.write(entry.getKey());
+				writer.newLine();
+			}
+			if (complete) {
+				writer.write(COMPLETE);
+				writer.newLine();
+			}
+			writer.flush();
+			channel.force(true);
+		}
+		try {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	public void delete() throws IOException {
+		completedFiles.clear();
+		complete = false;
+		Files.deleteIfExists(file);
+	}
+
+	private static String getStamp(long size, long lastModified) {
+		return size + "\t" + lastModified + "\t";
+	}
+
+}
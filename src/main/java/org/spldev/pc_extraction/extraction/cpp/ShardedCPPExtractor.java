@@ -0,0 +1,281 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.extraction.cpp;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+import org.spldev.pc_extraction.util.*;
+import org.spldev.util.logging.*;
+
+public class ShardedCPPExtractor {
+
+	private final CPPExtractor cppExtractor;
+
+	private int shardCount = Runtime.getRuntime().availableProcessors();
+	private int maxRetries = 2;
+	private List<String> jvmOptions = new ArrayList<>();
+
+	public ShardedCPPExtractor() {
+		this(new CPPExtractor());
+	}
+
+	public ShardedCPPExtractor(CPPExtractor cppExtractor) {
+		this.cppExtractor = cppExtractor;
+	}
+
+	public CPPExtractor getCPPExtractor() {
+		return cppExtractor;
+	}
+
+	public int getShardCount() {
+		return shardCount;
+	}
+
+	public void setShardCount(int shardCount) {
+		this.shardCount = shardCount;
+	}
+
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	public List<String> getJvmOptions() {
+		return jvmOptions;
+	}
+
+	public void setJvmOptions(List<String> jvmOptions) {
+		this.jvmOptions = jvmOptions;
+	}
+
+	public boolean extract(Path systemPath, Path outputPath) {
+		if (!Files.isReadable(systemPath)) {
+			Logger.logError(systemPath + " is not readable!");
+			return false;
+		}
+		final List<Process> processes = new ArrayList<>();
+		Path tempDirectory = null;
+		try {
+			final List<Path> files = cppExtractor.getFiles(systemPath);
+			final int shards = Math.max(1, Math.min(shardCount, files.size()));
+			final Path systemOutputPath = outputPath.resolve(systemPath.getFileName());
+			tempDirectory = Files.createTempDirectory("pc_extraction_shards_");
+			final Path configurationFile = tempDirectory.resolve("extractor.properties");
+			writeConfiguration(cppExtractor, configurationFile);
+
+			final List<Path> shardAllPCsFiles = new ArrayList<>(shards);
+			final List<Path> checkpointFiles = new ArrayList<>(shards);
+			final List<Path> quarantineFiles = new ArrayList<>(shards);
+			final List<List<String>> commands = new ArrayList<>(shards);
+			for (int i = 0; i < shards; i++) {
+				final int shard = i;
+				final List<String> shardFiles = IntStream.range(0, files.size()) //
+					.filter(index -> (index % shards) == shard) //
+					.mapToObj(index -> files.get(index).toString()) //
+					.collect(Collectors.toList());
+				final Path fileList = tempDirectory.resolve("shard_" + shard + ".files");
+				Files.write(fileList, shardFiles, StandardCharsets.UTF_8);
+				final Path shardAllPCsFile = tempDirectory.resolve("shard_" + shard + ".list");
+				shardAllPCsFiles.add(shardAllPCsFile);
+				final Path checkpointFile = systemOutputPath
+					.resolve("extraction_shard_" + shard + "_of_" + shards + ".checkpoint");
+				final Path quarantineFile = systemOutputPath
+					.resolve("quarantine_shard_" + shard + "_of_" + shards + ".list");
+				checkpointFiles.add(checkpointFile);
+				quarantineFiles.add(quarantineFile);
+				commands.add(getCommand(systemPath, outputPath, fileList, shardAllPCsFile, configurationFile,
+					checkpointFile, quarantineFile));
+			}
+
+			List<Integer> pendingShards = IntStream.range(0, shards).boxed().collect(Collectors.toList());
+			for (int attempt = 0; !pendingShards.isEmpty(); attempt++) {
+				if (attempt > maxRetries) {
+					Logger.logError("Shards failed after " + maxRetries + " retries: " + pendingShards);
+					for (final Integer shard : pendingShards) {
+						final Path logFile = systemOutputPath.resolve("extraction_shard_" + shard + ".log");
+						Files.move(tempDirectory.resolve("shard_" + shard + ".log"), logFile,
+							StandardCopyOption.REPLACE_EXISTING);
+						Logger.logError("See " + logFile + " for the output of shard " + shard);
+					}
+					return false;
+				}
+				if (attempt > 0) {
+					Logger.logInfo("Retrying shards " + pendingShards);
+				}
+				processes.clear();
+				for (final Integer shard : pendingShards) {
+					Files.deleteIfExists(shardAllPCsFiles.get(shard));
+					final Path logFile = tempDirectory.resolve("shard_" + shard + ".log");
+					processes.add(new ProcessBuilder(commands.get(shard)) //
+						.redirectErrorStream(true) //
+						.redirectOutput(logFile.toFile()) //
+						.start());
+				}
+				final List<Integer> failedShards = new ArrayList<>();
+				for (int i = 0; i < processes.size(); i++) {
+					final int shard = pendingShards.get(i);
+					final int exitCode = processes.get(i).waitFor();
+					if ((exitCode != 0) || !Files.exists(shardAllPCsFiles.get(shard))) {
+						Logger.logError("Shard " + shard + " failed with exit code " + exitCode);
+						failedShards.add(shard);
+					}
+				}
+				pendingShards = failedShards;
+			}
+
+			final Path allPCsFile = systemOutputPath.resolve("all_pcs" + ".list");
+			ExternalSortedSet.merge(shardAllPCsFiles, allPCsFile, cppExtractor.getCompression());
+			mergeQuarantineFiles(quarantineFiles, systemOutputPath.resolve("quarantine.list"));
+			for (final Path checkpointFile : checkpointFiles) {
+				Files.deleteIfExists(checkpointFile);
+			}
+			return true;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			Logger.logError(e);
+			return false;
+		} catch (final Exception e) {
+			Logger.logError(e);
+			return false;
+		} finally {
+			processes.stream().filter(Process::isAlive).forEach(Process::destroyForcibly);
+			if (tempDirectory != null) {
+				try {
+					deleteDirectory(tempDirectory);
+				} catch (final IOException e) {
+					Logger.logError(e);
+				}
+			}
+		}
+	}
+
+	private static void mergeQuarantineFiles(List<Path> quarantineFiles, Path mergedQuarantineFile)
+		throws IOException {
+		Files.deleteIfExists(mergedQuarantineFile);
+		for (final Path quarantineFile : quarantineFiles) {
+			if (Files.exists(quarantineFile)) {
+				Files.write(mergedQuarantineFile, Files.readAllBytes(quarantineFile), StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+				Files.delete(quarantineFile);
+			}
+		}
+	}
+
+	private List<String> getCommand(Path systemPath, Path outputPath, Path fileList, Path allPCsFile,
+		Path configurationFile, Path checkpointFile, Path quarantineFile) {
+		final List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmOptions);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ShardedCPPExtractor.class.getName());
+		command.add(systemPath.toAbsolutePath().toString());
+		command.add(outputPath.toAbsolutePath().toString());
+		command.add(fileList.toString());
+		command.add(allPCsFile.toString());
+		command.add(configurationFile.toAbsolutePath().toString());
+		command.add(checkpointFile.toAbsolutePath().toString());
+		command.add(quarantineFile.toAbsolutePath().toString());
+		return command;
+	}
+
+	private static void writeConfiguration(CPPExtractor cppExtractor, Path configurationFile) throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("engine", cppExtractor.getEngine().name());
+		properties.setProperty("memoryBudget", Long.toString(cppExtractor.getMemoryBudget()));
+		properties.setProperty("skipFilesWithoutDirectives",
+			Boolean.toString(cppExtractor.isSkipFilesWithoutDirectives()));
+		properties.setProperty("compression", cppExtractor.getCompression().name());
+		properties.setProperty("outputQueueCapacity", Integer.toString(cppExtractor.getOutputQueueCapacity()));
+		properties.setProperty("contentCacheSize", Integer.toString(cppExtractor.getContentCacheSize()));
+		properties.setProperty("checkpointInterval", Integer.toString(cppExtractor.getCheckpointInterval()));
+		properties.setProperty("fileTimeout", Long.toString(cppExtractor.getFileTimeout()));
+		properties.setProperty("fileAllocationBudget", Long.toString(cppExtractor.getFileAllocationBudget()));
+		properties.setProperty("maxAbandonedThreads", Integer.toString(cppExtractor.getMaxAbandonedThreads()));
+		final List<Path> excludePaths = cppExtractor.getExcludePaths();
+		properties.setProperty("excludePaths.count", Integer.toString(excludePaths.size()));
+		for (int i = 0; i < excludePaths.size(); i++) {
+			properties.setProperty("excludePaths." + i, excludePaths.get(i).toString());
+		}
+		try (Writer writer = Files.newBufferedWriter(configurationFile, StandardCharsets.UTF_8)) {
+			properties.store(writer, null);
+		}
+	}
+
+	private static void readConfiguration(CPPExtractor cppExtractor, Path configurationFile) throws IOException {
+		final Properties properties = new Properties();
+		try (Reader reader = Files.newBufferedReader(configurationFile, StandardCharsets.UTF_8)) {
+			properties.load(reader);
+		}
+		cppExtractor.setEngine(CPPExtractor.Engine.valueOf(properties.getProperty("engine")));
+		cppExtractor.setMemoryBudget(Long.parseLong(properties.getProperty("memoryBudget")));
+		cppExtractor.setSkipFilesWithoutDirectives(
+			Boolean.parseBoolean(properties.getProperty("skipFilesWithoutDirectives")));
+		cppExtractor.setCompression(Compression.valueOf(properties.getProperty("compression")));
+		cppExtractor.setOutputQueueCapacity(Integer.parseInt(properties.getProperty("outputQueueCapacity")));
+		cppExtractor.setContentCacheSize(Integer.parseInt(properties.getProperty("contentCacheSize")));
+		cppExtractor.setCheckpointInterval(Integer.parseInt(properties.getProperty("checkpointInterval")));
+		cppExtractor.setFileTimeout(Long.parseLong(properties.getProperty("fileTimeout")));
+		cppExtractor.setFileAllocationBudget(Long.parseLong(properties.getProperty("fileAllocationBudget")));
+		cppExtractor.setMaxAbandonedThreads(Integer.parseInt(properties.getProperty("maxAbandonedThreads")));
+		final int excludePathCount = Integer.parseInt(properties.getProperty("excludePaths.count"));
+		final List<Path> excludePaths = new ArrayList<>(excludePathCount);
+		for (int i = 0; i < excludePathCount; i++) {
+			excludePaths.add(Paths.get(properties.getProperty("excludePaths." + i)));
+		}
+		cppExtractor.setExcludePaths(excludePaths);
+	}
+
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 7) {
+			System.err.println("Usage: <system path> <output path> <file list> <all PCs file> <configuration file> "
+				+ "<checkpoint file> <quarantine file>");
+			System.exit(2);
+		}
+		final Path systemPath = Paths.get(args[0]);
+		final Path outputPath = Paths.get(args[1]);
+		final List<Path> files = Files.readAllLines(Paths.get(args[2]), StandardCharsets.UTF_8).stream() //
+			.map(Paths::get) //
+			.collect(Collectors.toList());
+
+		final CPPExtractor cppExtractor = new CPPExtractor();
+		readConfiguration(cppExtractor, Paths.get(args[4]));
+		cppExtractor.setCheckpointFile(Paths.get(args[5]));
+		cppExtractor.setQuarantineFile(Paths.get(args[6]));
+		System.exit(cppExtractor.extract(systemPath, outputPath, files, Paths.get(args[3])) ? 0 : 1);
+	}
+
+}
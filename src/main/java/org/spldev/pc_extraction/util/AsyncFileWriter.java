@@ -0,0 +1,194 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.util;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.spldev.util.logging.*;
+
+public class AsyncFileWriter implements Closeable {
+
+	private static class WriteTask {
+		private final Path file;
+		private final byte[] content;
+		private final Runnable onWritten;
+
+		public WriteTask(Path file, byte[] content, Runnable onWritten) {
+			this.file = file;
+			this.content = content;
+			this.onWritten = onWritten;
+		}
+	}
+
+	private static final WriteTask END = new WriteTask(null, null, null);
+	private static final int BATCH_SIZE = 64;
+	private static final long POLL_INTERVAL = 100;
+
+	private final Set<Path> createdDirectories = new HashSet<>();
+	private final BlockingQueue<WriteTask> queue;
+	private final Thread writerThread;
+
+	private long backpressureTime;
+	private boolean closed;
+	private volatile Throwable failure;
+
+	public AsyncFileWriter(int queueCapacity) {
+		if (queueCapacity > 0) {
+			queue = new ArrayBlockingQueue<>(queueCapacity);
+			writerThread = new Thread(this::run, "AsyncFileWriter");
+			writerThread.setDaemon(true);
+			writerThread.start();
+		} else {
+			queue = null;
+			writerThread = null;
+		}
+	}
+
+	public void write(Path file, byte[] content) throws IOException {
+		write(file, content, null);
+	}
+
+	public void write(Path file, byte[] content, Runnable onWritten) throws IOException {
+		if (closed) {
+			throw new IOException("Writer is already closed");
+		}
+		checkFailure();
+		final WriteTask task = new WriteTask(file, content, onWritten);
+		if (queue == null) {
+			try {
+				write(Collections.singletonList(task));
+			} catch (final Throwable e) {
+				fail(e);
+				checkFailure();
+			}
+		} else if (!queue.offer(task)) {
+			final long start = System.nanoTime();
+			try {
+				put(task);
+			} finally {
+				backpressureTime += System.nanoTime() - start;
+			}
+		}
+	}
+
+	public void checkFailure() throws IOException {
+		final Throwable currentFailure = failure;
+		if (currentFailure != null) {
+			throw new IOException("Could not write output", currentFailure);
+		}
+	}
+
+	public long getBackpressureTime() {
+		return backpressureTime;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (queue != null) {
+			put(END);
+			try {
+				writerThread.join();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		checkFailure();
+	}
+
+	private void put(WriteTask task) throws IOException {
+		try {
+			while (!queue.offer(task, POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+				checkFailure();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	private void fail(Throwable e) {
+		if (failure == null) {
+			failure = e;
+		}
+		Logger.logError(e);
+	}
+
+	private void run() {
+		final List<WriteTask> batch = new ArrayList<>(BATCH_SIZE);
+		while (true) {
+			try {
+				batch.add(queue.take());
+			} catch (final InterruptedException e) {
+				fail(e);
+				return;
+			}
+			queue.drainTo(batch, BATCH_SIZE - 1);
+			final boolean end = batch.remove(END);
+			try {
+				write(batch);
+			} catch (final Throwable e) {
+				fail(e);
+				queue.clear();
+				return;
+			}
+			batch.clear();
+			if (end) {
+				return;
+			}
+		}
+	}
+
+	private void write(List<WriteTask> batch) throws IOException {
+		for (final WriteTask task : batch) {
+			final Path directory = task.file.getParent();
+			if ((directory != null) && !createdDirectories.contains(directory)) {
+				try {
+					Files.createDirectories(directory);
+					createdDirectories.add(directory);
+				} catch (final IOException e) {
+					Logger.logError(directory.toString());
+					Logger.logError(e);
+				}
+			}
+		}
+		for (final WriteTask task : batch) {
+			try {
+				Files.write(task.file, task.content);
+			} catch (final IOException e) {
+				throw new IOException("Could not write " + task.file, e);
+			}
+			if (task.onWritten != null) {
+				task.onWritten.run();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.util;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.zip.*;
+
+public enum Compression {
+
+	NONE, DEFLATE, GZIP;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int DEFLATE_MAGIC = 0xFF;
+
+	public static Compression detect(int firstByte, int secondByte) {
+		if ((firstByte == 0x1F) && (secondByte == 0x8B)) {
+			return GZIP;
+		}
+		if ((firstByte == DEFLATE_MAGIC) && ((secondByte & 0x0F) == 8)) {
+			return DEFLATE;
+		}
+		return NONE;
+	}
+
+	public static Compression detect(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return detect(in.read(), in.read());
+		}
+	}
+
+	public static InputStream decompress(InputStream in) throws IOException {
+		final BufferedInputStream bufferedIn = new BufferedInputStream(in, BUFFER_SIZE);
+		bufferedIn.mark(2);
+		final Compression compression = detect(bufferedIn.read(), bufferedIn.read());
+		bufferedIn.reset();
+		switch (compression) {
+		case DEFLATE:
+			bufferedIn.read();
+			return new BufferedInputStream(new InflaterInputStream(bufferedIn), BUFFER_SIZE);
+		case GZIP:
+			return new BufferedInputStream(new GZIPInputStream(bufferedIn, BUFFER_SIZE), BUFFER_SIZE);
+		case NONE:
+		default:
+			return bufferedIn;
+		}
+	}
+
+	public static InputStream newInputStream(Path file) throws IOException {
+		return decompress(Files.newInputStream(file));
+	}
+
+	public static BufferedReader newBufferedReader(Path file) throws IOException {
+		return new BufferedReader(new InputStreamReader(newInputStream(file), StandardCharsets.UTF_8.newDecoder()));
+	}
+
+	public OutputStream compress(OutputStream out) throws IOException {
+		switch (this) {
+		case DEFLATE:
+			out.write(DEFLATE_MAGIC);
+			return new BufferedOutputStream(new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE) {
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						def.end();
+					}
+				}
+			}, BUFFER_SIZE);
+		case GZIP:
+			return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+		case NONE:
+		default:
+			return new BufferedOutputStream(out, BUFFER_SIZE);
+		}
+	}
+
+	public byte[] compress(byte[] content) throws IOException {
+		if (this == NONE) {
+			return content;
+		}
+		final ByteArrayOutputStream byteOut = new ByteArrayOutputStream((content.length >> 2) + 64);
+		if (this == DEFLATE) {
+			byteOut.write(DEFLATE_MAGIC);
+		}
+		try (DeflaterOutputStream out = this == GZIP ? new GZIPOutputStream(byteOut)
+			: new DeflaterOutputStream(byteOut)) {
+			out.write(content);
+		}
+		return byteOut.toByteArray();
+	}
+
+	public OutputStream newOutputStream(Path file) throws IOException {
+		return compress(Files.newOutputStream(file));
+	}
+
+	public BufferedWriter newBufferedWriter(Path file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(newOutputStream(file), StandardCharsets.UTF_8));
+	}
+
+}
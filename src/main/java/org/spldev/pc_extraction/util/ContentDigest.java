@@ -0,0 +1,60 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.util;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.*;
+
+public final class ContentDigest {
+
+	private static final String ALGORITHM = "SHA-256";
+
+	private ContentDigest() {
+	}
+
+	public static ByteBuffer of(byte[] content) {
+		final MessageDigest digest = createDigest();
+		digest.update(content);
+		return ByteBuffer.wrap(digest.digest());
+	}
+
+	public static ByteBuffer of(List<String> lines) {
+		final MessageDigest digest = createDigest();
+		for (final String line : lines) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+		return ByteBuffer.wrap(digest.digest());
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.util;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class ExternalSortedSet implements Closeable {
+
+	private static class Run implements Comparable<Run> {
+		private final BufferedReader reader;
+		private String current;
+
+		public Run(Path file) throws IOException {
+			reader = Compression.newBufferedReader(file);
+			current = reader.readLine();
+		}
+
+		public void advance() throws IOException {
+			current = reader.readLine();
+		}
+
+		@Override
+		public int compareTo(Run other) {
+			return current.compareTo(other.current);
+		}
+	}
+
+	private static final long ENTRY_OVERHEAD = 64;
+
+	private final HashSet<String> entries = new HashSet<>();
+	private final List<Path> runs = new ArrayList<>();
+	private final long memoryBudget;
+
+	private Path tempDirectory;
+	private long memoryUsage;
+
+	public ExternalSortedSet(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	public void add(String entry) {
+		if (entries.add(entry)) {
+			memoryUsage += ENTRY_OVERHEAD + (2L * entry.length());
+			if (memoryUsage > memoryBudget) {
+				try {
+					spill();
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	public void write(Path outputFile) throws IOException {
+		write(outputFile, Compression.NONE);
+	}
+
+	public void write(Path outputFile, Compression compression) throws IOException {
+		if (runs.isEmpty()) {
+			final List<String> sortedEntries = new ArrayList<>(entries);
+			Collections.sort(sortedEntries);
+			try (BufferedWriter writer = compression.newBufferedWriter(outputFile)) {
+				for (final String entry : sortedEntries) {
+					writer.write(entry);
+					writer.newLine();
+				}
+			}
+			return;
+		}
+		spill();
+		merge(runs, outputFile, compression);
+	}
+
+	public static void merge(List<Path> sortedFiles, Path outputFile) throws IOException {
+		merge(sortedFiles, outputFile, Compression.NONE);
+	}
+
+	public static void merge(List<Path> sortedFiles, Path outputFile, Compression compression) throws IOException {
+		final PriorityQueue<Run> queue = new PriorityQueue<>();
+		try (BufferedWriter writer = compression.newBufferedWriter(outputFile)) {
+			for (final Path sortedFile : sortedFiles) {
+				final Run openRun = new Run(sortedFile);
+				if (openRun.current != null) {
+					queue.add(openRun);
+				} else {
+					openRun.reader.close();
+				}
+			}
+			String last = null;
+			while (!queue.isEmpty()) {
+				final Run run = queue.poll();
+				if (!run.current.equals(last)) {
+					last = run.current;
+					writer.write(last);
+					writer.newLine();
+				}
+				run.advance();
+				if (run.current != null) {
+					queue.add(run);
+				} else {
+					run.reader.close();
+				}
+			}
+		} finally {
+			for (final Run run : queue) {
+				run.reader.close();
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		entries.clear();
+		memoryUsage = 0;
+		for (final Path run : runs) {
+			Files.deleteIfExists(run);
+		}
+		runs.clear();
+		if (tempDirectory != null) {
+			Files.deleteIfExists(tempDirectory);
+			tempDirectory = null;
+		}
+	}
+
+	private void spill() throws IOException {
+		if (entries.isEmpty()) {
+			return;
+		}
+		if (tempDirectory == null) {
+			tempDirectory = Files.createTempDirectory("pc_extraction_");
+		}
+		final List<String> sortedEntries = new ArrayList<>(entries);
+		Collections.sort(sortedEntries);
+		final Path run = tempDirectory.resolve("run_" + runs.size() + ".list");
+		Files.write(run, sortedEntries, StandardCharsets.UTF_8);
+		runs.add(run);
+		entries.clear();
+		memoryUsage = 0;
+	}
+
+}
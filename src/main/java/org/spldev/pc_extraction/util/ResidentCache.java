@@ -0,0 +1,139 @@
+/* -----------------------------------------------------------------------------
+ * PC-Extractor - Program for extracting presence conditions from SPLs.
+ * Copyright (C) 2021  Sebastian Krieter
+ * 
+ * This file is part of PC-Extractor.
+ * 
+ * PC-Extractor is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ * 
+ * PC-Extractor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with PC-Extractor.  If not, see <https://www.gnu.org/licenses/>.
+ * 
+ * See <https://github.com/skrieter/pc-extractor> for further information.
+ * -----------------------------------------------------------------------------
+ */
+package org.spldev.pc_extraction.util;
+
+import java.util.*;
+import java.util.function.*;
+
+public class ResidentCache<K, V> {
+
+	private static class Entry<V> {
+		private final V value;
+		private long size;
+
+		public Entry(V value, long size) {
+			this.value = value;
+			this.size = size;
+		}
+	}
+
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final ToLongFunction<V> sizeEstimator;
+
+	private long memoryBudget;
+	private long memoryUsage;
+
+	public ResidentCache(long memoryBudget, ToLongFunction<V> sizeEstimator) {
+		this.memoryBudget = memoryBudget;
+		this.sizeEstimator = sizeEstimator;
+	}
+
+	public synchronized V get(K key) {
+		final Entry<V> entry = entries.get(key);
+		return entry != null ? entry.value : null;
+	}
+
+	public <E extends Exception> V get(K key, FailableFunction<K, V, E> loader) throws E {
+		V value = get(key);
+		if (value == null) {
+			value = loader.apply(key);
+			if (value != null) {
+				put(key, value);
+			}
+		}
+		return value;
+	}
+
+	public synchronized void put(K key, V value) {
+		final Entry<V> oldEntry = entries.put(key, new Entry<>(value, sizeEstimator.applyAsLong(value)));
+		if (oldEntry != null) {
+			memoryUsage -= oldEntry.size;
+		}
+		memoryUsage += entries.get(key).size;
+		evict(key);
+	}
+
+	public synchronized void update(K key) {
+		final Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			final long size = sizeEstimator.applyAsLong(entry.value);
+			memoryUsage += size - entry.size;
+			entry.size = size;
+			evict(key);
+		}
+	}
+
+	public synchronized V remove(K key) {
+		final Entry<V> entry = entries.remove(key);
+		if (entry != null) {
+			memoryUsage -= entry.size;
+			return entry.value;
+		}
+		return null;
+	}
+
+	public synchronized void removeIf(Predicate<K> filter) {
+		final Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			final Map.Entry<K, Entry<V>> entry = iterator.next();
+			if (filter.test(entry.getKey())) {
+				memoryUsage -= entry.getValue().size;
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		memoryUsage = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getMemoryUsage() {
+		return memoryUsage;
+	}
+
+	public synchronized long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	public synchronized void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		evict(null);
+	}
+
+	private void evict(K keep) {
+		final Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+		while ((memoryUsage > memoryBudget) && iterator.hasNext()) {
+			final Map.Entry<K, Entry<V>> entry = iterator.next();
+			if (!entry.getKey().equals(keep)) {
+				memoryUsage -= entry.getValue().size;
+				iterator.remove();
+			}
+		}
+	}
+
+}